@@ -0,0 +1,141 @@
+package dev.sultanov.keycloak.multitenancy.benchmarks;
+
+import dev.sultanov.keycloak.multitenancy.model.entity.TenantAttributeEntity;
+import dev.sultanov.keycloak.multitenancy.model.entity.TenantEntity;
+import dev.sultanov.keycloak.multitenancy.model.entity.TenantInvitationEntity;
+import dev.sultanov.keycloak.multitenancy.model.entity.TenantMembershipEntity;
+import dev.sultanov.keycloak.multitenancy.util.Constants;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.keycloak.models.jpa.entities.CredentialEntity;
+import org.keycloak.models.jpa.entities.UserAttributeEntity;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserRequiredActionEntity;
+
+/**
+ * In-memory H2 database with the tenant schema, seeded with a realistic data set: tenants with the given number of attributes, and one user for each
+ * requested membership count, who is a member of that many tenants.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+    public static final String REALM_ID = "benchmark-realm";
+    public static final String REALM_NAME = "benchmark";
+    public static final String ATTRIBUTE_PREFIX = "attribute-";
+
+    private static final int SEED_BATCH_SIZE = 500;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final List<String> tenantIds = new ArrayList<>();
+
+    public BenchmarkDatabase(int tenants, int attributesPerTenant) {
+        var registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create")
+                .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, SEED_BATCH_SIZE)
+                .applySetting(AvailableSettings.ORDER_INSERTS, true)
+                // Named queries of the Keycloak user entities refer to entities which are not part of this schema
+                .applySetting(AvailableSettings.QUERY_STARTUP_CHECKING, false)
+                .build();
+        entityManagerFactory = new MetadataSources(registry)
+                .addAnnotatedClass(UserEntity.class)
+                .addAnnotatedClass(UserAttributeEntity.class)
+                .addAnnotatedClass(UserRequiredActionEntity.class)
+                .addAnnotatedClass(CredentialEntity.class)
+                .addAnnotatedClass(TenantEntity.class)
+                .addAnnotatedClass(TenantAttributeEntity.class)
+                .addAnnotatedClass(TenantMembershipEntity.class)
+                .addAnnotatedClass(TenantInvitationEntity.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        seedTenants(tenants, attributesPerTenant);
+    }
+
+    public EntityManager createEntityManager() {
+        return entityManagerFactory.createEntityManager();
+    }
+
+    public List<String> getTenantIds() {
+        return tenantIds;
+    }
+
+    /**
+     * Creates a user who is a member of the given number of tenants, spread evenly over all tenants, and returns the user ID.
+     */
+    public String createMember(int memberships) {
+        String userId = UUID.randomUUID().toString();
+        inTransaction(em -> {
+            UserEntity user = new UserEntity();
+            user.setId(userId);
+            user.setUsername(userId);
+            user.setRealmId(REALM_ID);
+            user.setEnabled(true);
+            em.persist(user);
+
+            int step = Math.max(1, tenantIds.size() / memberships);
+            for (int i = 0; i < memberships; i++) {
+                TenantMembershipEntity membership = new TenantMembershipEntity();
+                membership.setId(UUID.randomUUID().toString());
+                membership.setUser(user);
+                membership.setTenant(em.getReference(TenantEntity.class, tenantIds.get((i * step) % tenantIds.size())));
+                membership.setRoles(Set.of(Constants.TENANT_ADMIN_ROLE));
+                em.persist(membership);
+                flushPeriodically(em, i);
+            }
+        });
+        return userId;
+    }
+
+    private void seedTenants(int tenants, int attributesPerTenant) {
+        inTransaction(em -> {
+            for (int i = 0; i < tenants; i++) {
+                TenantEntity tenant = new TenantEntity();
+                tenant.setId(UUID.randomUUID().toString());
+                tenant.setName(String.format("tenant-%06d", i));
+                tenant.setRealmId(REALM_ID);
+                em.persist(tenant);
+                tenantIds.add(tenant.getId());
+
+                for (int j = 0; j < attributesPerTenant; j++) {
+                    TenantAttributeEntity attribute = new TenantAttributeEntity();
+                    attribute.setId(UUID.randomUUID().toString());
+                    attribute.setName(ATTRIBUTE_PREFIX + j);
+                    attribute.setValue("value-" + i + "-" + j);
+                    attribute.setTenant(tenant);
+                    em.persist(attribute);
+                }
+                flushPeriodically(em, i);
+            }
+        });
+    }
+
+    private static void flushPeriodically(EntityManager em, int index) {
+        if ((index + 1) % SEED_BATCH_SIZE == 0) {
+            em.flush();
+            em.clear();
+        }
+    }
+
+    private void inTransaction(Consumer<EntityManager> action) {
+        EntityManager em = createEntityManager();
+        try {
+            em.getTransaction().begin();
+            action.accept(em);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        entityManagerFactory.close();
+    }
+}
@@ -0,0 +1,25 @@
+package dev.sultanov.keycloak.multitenancy.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line with the GC profiler enabled, so that every result reports the allocation rate next to the
+ * throughput. Accepts the same arguments as the JMH launcher.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    private BenchmarkRunner() {
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,46 @@
+package dev.sultanov.keycloak.multitenancy.benchmarks;
+
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Database shared by all threads of a benchmark, with a member whose number of memberships is a benchmark parameter. The active tenant of the member is
+ * the last tenant they joined.
+ */
+@State(Scope.Benchmark)
+public class DatabaseState {
+
+    @Param("10000")
+    public int tenants;
+
+    @Param("50")
+    public int attributesPerTenant;
+
+    @Param({"1", "50", "500"})
+    public int memberships;
+
+    public BenchmarkDatabase database;
+    public RealmModel realm;
+    public UserModel member;
+    public String activeTenantId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(tenants, attributesPerTenant);
+        realm = Stubs.realm(BenchmarkDatabase.REALM_ID, BenchmarkDatabase.REALM_NAME);
+        member = Stubs.user(database.createMember(memberships));
+        int step = Math.max(1, tenants / memberships);
+        activeTenantId = database.getTenantIds().get(((memberships - 1) * step) % tenants);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+}
@@ -0,0 +1,38 @@
+package dev.sultanov.keycloak.multitenancy.benchmarks;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
+import dev.sultanov.keycloak.multitenancy.model.jpa.JpaTenantProvider;
+import jakarta.persistence.EntityManager;
+import java.util.Map;
+import org.keycloak.models.KeycloakSession;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Per-invocation session and persistence context, so that every invocation starts as cold as a new request does. Changes are rolled back after each
+ * invocation.
+ */
+@State(Scope.Thread)
+public class RequestState {
+
+    public EntityManager em;
+    public KeycloakSession session;
+    public TenantProvider provider;
+
+    @Setup(Level.Invocation)
+    public void setUp(DatabaseState state) {
+        em = state.database.createEntityManager();
+        em.getTransaction().begin();
+        provider = new JpaTenantProvider(Stubs.session(state.realm, Map.of()), em);
+        session = Stubs.session(state.realm, Map.of(TenantProvider.class, provider));
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+}
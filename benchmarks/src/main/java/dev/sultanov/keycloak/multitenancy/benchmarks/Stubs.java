@@ -0,0 +1,70 @@
+package dev.sultanov.keycloak.multitenancy.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RealmProvider;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.UserSessionModel;
+import org.keycloak.provider.Provider;
+
+/**
+ * Minimal implementations of the Keycloak interfaces that the benchmarked code depends on. Only the methods listed for each stub are supported, so that
+ * a benchmark fails loudly instead of measuring an unexpected code path.
+ */
+public final class Stubs {
+
+    private Stubs() {
+        throw new AssertionError();
+    }
+
+    public static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            var answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            return switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> type.getSimpleName() + " stub";
+                default -> throw new UnsupportedOperationException(method.toString());
+            };
+        }));
+    }
+
+    public static RealmModel realm(String id, String name) {
+        return stub(RealmModel.class, Map.of(
+                "getId", args -> id,
+                "getName", args -> name));
+    }
+
+    public static UserModel user(String id) {
+        return stub(UserModel.class, Map.of("getId", args -> id));
+    }
+
+    public static UserSessionModel userSession(String id, RealmModel realm, UserModel user, Map<String, String> notes) {
+        return stub(UserSessionModel.class, Map.of(
+                "getId", args -> id,
+                "getRealm", args -> realm,
+                "getUser", args -> user,
+                "getNote", args -> notes.get((String) args[0])));
+    }
+
+    /**
+     * Returns a session with its own attributes, as every request gets a new session.
+     */
+    public static KeycloakSession session(RealmModel realm, Map<Class<? extends Provider>, Provider> providers) {
+        Map<String, Object> attributes = new HashMap<>();
+        RealmProvider realms = stub(RealmProvider.class, Map.of("getRealm", args -> realm.getId().equals(args[0]) ? realm : null));
+        return stub(KeycloakSession.class, Map.of(
+                "getAttribute", args -> attributes.get((String) args[0]),
+                "setAttribute", args -> attributes.put((String) args[0], args[1]),
+                "removeAttribute", args -> attributes.remove((String) args[0]),
+                "getProvider", args -> providers.get((Class<?>) args[0]),
+                "realms", args -> realms));
+    }
+}
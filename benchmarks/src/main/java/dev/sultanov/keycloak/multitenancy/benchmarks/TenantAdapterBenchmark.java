@@ -0,0 +1,85 @@
+package dev.sultanov.keycloak.multitenancy.benchmarks;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import dev.sultanov.keycloak.multitenancy.model.jpa.JpaTenantProvider;
+import jakarta.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TenantAdapterBenchmark {
+
+    /**
+     * Tenant whose attributes are already loaded, as they are after the first attribute access of a request.
+     */
+    @State(Scope.Thread)
+    public static class LoadedTenantState {
+
+        public EntityManager em;
+        public TenantModel tenant;
+        public String lastAttribute;
+
+        @Setup(Level.Iteration)
+        public void setUp(DatabaseState state) {
+            em = state.database.createEntityManager();
+            tenant = new JpaTenantProvider(Stubs.session(state.realm, Map.of()), em).getTenantById(state.realm, state.activeTenantId).orElseThrow();
+            tenant.getAttributes();
+            lastAttribute = BenchmarkDatabase.ATTRIBUTE_PREFIX + (state.attributesPerTenant - 1);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public Map<String, List<String>> getAttributes(LoadedTenantState state) {
+        return state.tenant.getAttributes();
+    }
+
+    @Benchmark
+    public String getFirstAttribute(LoadedTenantState state) {
+        return state.tenant.getFirstAttribute(state.lastAttribute);
+    }
+
+    @Benchmark
+    public List<String> getAttributeStream(LoadedTenantState state) {
+        return state.tenant.getAttributeStream(state.lastAttribute).toList();
+    }
+
+    @Benchmark
+    public void setSingleAttribute(DatabaseState state, RequestState request) {
+        var tenant = request.provider.getTenantById(state.realm, state.activeTenantId).orElseThrow();
+        tenant.setSingleAttribute(BenchmarkDatabase.ATTRIBUTE_PREFIX + (state.attributesPerTenant - 1), "updated");
+        request.em.flush();
+    }
+
+    @Benchmark
+    public void updateAllAttributes(DatabaseState state, RequestState request) {
+        // Replaces every attribute value the way the tenant update endpoint does
+        var tenant = request.provider.getTenantById(state.realm, state.activeTenantId).orElseThrow();
+        Map<String, List<String>> attributes = new HashMap<>();
+        tenant.getAttributes().forEach((name, values) -> attributes.put(name, List.of(values.get(0) + "-updated")));
+        tenant.setAttributes(attributes);
+        request.em.flush();
+    }
+}
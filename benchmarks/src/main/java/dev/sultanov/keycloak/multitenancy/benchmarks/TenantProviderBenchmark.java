@@ -0,0 +1,56 @@
+package dev.sultanov.keycloak.multitenancy.benchmarks;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TenantProviderBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Benchmark
+    public List<TenantMembershipModel> getTenantMembershipsStream(DatabaseState state, RequestState request) {
+        return request.provider.getTenantMembershipsStream(state.realm, state.member).toList();
+    }
+
+    @Benchmark
+    public List<TenantMembershipModel> getTenantMembershipsStreamOfTenant(DatabaseState state, RequestState request) {
+        return request.provider.getTenantMembershipsStream(state.realm, state.member, Set.of(), Map.of(), Set.of(state.activeTenantId)).toList();
+    }
+
+    @Benchmark
+    public List<String> getTenantIdsOfMember(DatabaseState state, RequestState request) {
+        return request.provider.getTenantIdsOfMember(state.realm, state.member, null, 2);
+    }
+
+    @Benchmark
+    public List<TenantModel> getTenantsStream(DatabaseState state, RequestState request) {
+        return request.provider.getTenantsStream(state.realm, null, Map.of(), 0, PAGE_SIZE).toList();
+    }
+
+    @Benchmark
+    public List<TenantModel> getTenantsStreamOfMember(DatabaseState state, RequestState request) {
+        return request.provider.getTenantsStream(state.realm, null, Map.of(), state.member, 0, PAGE_SIZE).toList();
+    }
+
+    @Benchmark
+    public Optional<TenantModel> getTenantById(DatabaseState state, RequestState request) {
+        return request.provider.getTenantById(state.realm, state.activeTenantId);
+    }
+}
@@ -0,0 +1,157 @@
+package dev.sultanov.keycloak.multitenancy.protocol.oidc.mappers;
+
+import dev.sultanov.keycloak.multitenancy.benchmarks.BenchmarkDatabase;
+import dev.sultanov.keycloak.multitenancy.benchmarks.DatabaseState;
+import dev.sultanov.keycloak.multitenancy.benchmarks.RequestState;
+import dev.sultanov.keycloak.multitenancy.benchmarks.Stubs;
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import dev.sultanov.keycloak.multitenancy.model.jpa.JpaTenantProvider;
+import dev.sultanov.keycloak.multitenancy.util.Constants;
+import jakarta.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.keycloak.models.ProtocolMapperModel;
+import org.keycloak.models.UserSessionModel;
+import org.keycloak.protocol.oidc.mappers.OIDCAttributeMapperHelper;
+import org.keycloak.representations.AccessToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of the tenant claims on the token path. Every mapper invocation gets a new session, so the memberships are loaded from the database once per
+ * invocation, as they are once per token request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TokenMapperBenchmark {
+
+    private static final String CLAIM_NAME = "tenants";
+
+    @State(Scope.Benchmark)
+    public static class MapperState {
+
+        public UserSessionModel userSession;
+        public ProtocolMapperModel activeTenantMapping;
+        public ProtocolMapperModel allTenantsMapping;
+        public ProtocolMapperModel tenantAttributeMapping;
+
+        @Setup(Level.Trial)
+        public void setUp(DatabaseState state) {
+            userSession = Stubs.userSession(UUID.randomUUID().toString(), state.realm, state.member,
+                    Map.of(Constants.ACTIVE_TENANT_ID_SESSION_NOTE, state.activeTenantId));
+            activeTenantMapping = mapping(ActiveTenantMapper.PROVIDER_ID, Map.of());
+            allTenantsMapping = mapping(AllTenantsMapper.PROVIDER_ID, Map.of());
+            tenantAttributeMapping = mapping("oidc-tenant-attribute-mapper", Map.of("tenant.attribute.name", BenchmarkDatabase.ATTRIBUTE_PREFIX + 0));
+        }
+
+        private static ProtocolMapperModel mapping(String mapperId, Map<String, String> config) {
+            var mapping = new ProtocolMapperModel();
+            mapping.setProtocolMapper(mapperId);
+            mapping.setConfig(new HashMap<>(config));
+            mapping.getConfig().put(OIDCAttributeMapperHelper.TOKEN_CLAIM_NAME, CLAIM_NAME);
+            mapping.getConfig().put(OIDCAttributeMapperHelper.INCLUDE_IN_ACCESS_TOKEN, "true");
+            return mapping;
+        }
+    }
+
+    /**
+     * All tenants mapper with each claim format, with and without a cap on the number of tenants.
+     */
+    @State(Scope.Benchmark)
+    public static class ClaimFormatState {
+
+        @Param({"full", "ids", "compact", "bitmask"})
+        public String claimFormat;
+
+        @Param({"0", "20"})
+        public String maxTenants;
+
+        public ProtocolMapperModel allTenantsMapping;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            allTenantsMapping = MapperState.mapping(AllTenantsMapper.PROVIDER_ID, Map.of(
+                    AllTenantsMapper.CLAIM_FORMAT, claimFormat,
+                    AllTenantsMapper.MAX_TENANTS, maxTenants));
+        }
+    }
+
+    /**
+     * Memberships loaded once, to measure the claim construction alone.
+     */
+    @State(Scope.Thread)
+    public static class MembershipsState {
+
+        public EntityManager em;
+        public List<TenantMembershipModel> memberships;
+
+        @Setup(Level.Iteration)
+        public void setUp(DatabaseState state) {
+            em = state.database.createEntityManager();
+            memberships = new JpaTenantProvider(Stubs.session(state.realm, Map.of()), em).getTenantMembershipsStream(state.realm, state.member).toList();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            em.close();
+        }
+    }
+
+    private final ActiveTenantMapper activeTenantMapper = new ActiveTenantMapper();
+    private final AllTenantsMapper allTenantsMapper = new AllTenantsMapper();
+    private final TenantAttributeMapper tenantAttributeMapper = new TenantAttributeMapper();
+
+    @Benchmark
+    public void toClaim(MembershipsState state, Blackhole blackhole) {
+        for (TenantMembershipModel membership : state.memberships) {
+            blackhole.consume(ClaimsFactory.toClaim(membership));
+        }
+    }
+
+    @Benchmark
+    public AccessToken activeTenantMapper(MapperState mapper, RequestState request) {
+        return activeTenantMapper.transformAccessToken(new AccessToken(), mapper.activeTenantMapping, request.session, mapper.userSession, null);
+    }
+
+    @Benchmark
+    public AccessToken allTenantsMapper(MapperState mapper, RequestState request) {
+        return allTenantsMapper.transformAccessToken(new AccessToken(), mapper.allTenantsMapping, request.session, mapper.userSession, null);
+    }
+
+    @Benchmark
+    public AccessToken allTenantsMapperClaimFormat(MapperState mapper, ClaimFormatState format, RequestState request) {
+        return allTenantsMapper.transformAccessToken(new AccessToken(), format.allTenantsMapping, request.session, mapper.userSession, null);
+    }
+
+    @Benchmark
+    public AccessToken tenantAttributeMapper(MapperState mapper, RequestState request) {
+        return tenantAttributeMapper.transformAccessToken(new AccessToken(), mapper.tenantAttributeMapping, request.session, mapper.userSession, null);
+    }
+
+    @Benchmark
+    public AccessToken allMappers(MapperState mapper, RequestState request) {
+        // A token with all tenant claims, which share the memberships loaded by the first mapper
+        var token = new AccessToken();
+        activeTenantMapper.transformAccessToken(token, mapper.activeTenantMapping, request.session, mapper.userSession, null);
+        allTenantsMapper.transformAccessToken(token, mapper.allTenantsMapping, request.session, mapper.userSession, null);
+        return tenantAttributeMapper.transformAccessToken(token, mapper.tenantAttributeMapping, request.session, mapper.userSession, null);
+    }
+}
@@ -1,9 +1,9 @@
 package dev.sultanov.keycloak.multitenancy.authentication;
 
 import dev.sultanov.keycloak.multitenancy.model.TenantInvitationModel;
-import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class TenantsBean {
@@ -22,10 +22,12 @@ public class TenantsBean {
         return new TenantsBean(tenants);
     }
 
-    public static TenantsBean fromMembership(List<TenantMembershipModel> memberships) {
-        var tenants = memberships.stream()
-                .map(membership -> new Tenant(membership.getTenant().getId(), membership.getTenant().getName()))
-                .sorted(Comparator.comparing(Tenant::getName))
+    /**
+     * @param tenantNames names of the tenants by tenant ID, in the order in which the tenants are listed
+     */
+    public static TenantsBean fromTenantNames(Map<String, String> tenantNames) {
+        var tenants = tenantNames.entrySet().stream()
+                .map(entry -> new Tenant(entry.getKey(), entry.getValue()))
                 .collect(Collectors.toList());
         return new TenantsBean(tenants);
     }
@@ -1,7 +1,8 @@
 package dev.sultanov.keycloak.multitenancy.authentication.requiredactions;
 
-import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import dev.sultanov.keycloak.multitenancy.metrics.TenantMetrics;
 import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
+import io.micrometer.core.instrument.Timer;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.Config;
@@ -10,6 +11,7 @@ import org.keycloak.authentication.RequiredActionFactory;
 import org.keycloak.authentication.RequiredActionProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.ModelDuplicateException;
 import org.keycloak.models.utils.FormMessage;
 import org.keycloak.services.validation.Validation;
 
@@ -18,8 +20,14 @@ public class CreateTenant implements RequiredActionProvider, RequiredActionFacto
 
     public static final String ID = "create-tenant";
 
+    private static final Timer EVALUATION_TIMER = TenantMetrics.requiredActionTimer(ID);
+
     @Override
     public void evaluateTriggers(RequiredActionContext context) {
+        EVALUATION_TIMER.record(() -> addIfTriggered(context));
+    }
+
+    private void addIfTriggered(RequiredActionContext context) {
         log.debug("Evaluating triggers for create tenant action");
         var realm = context.getRealm();
         var user = context.getUser();
@@ -48,23 +56,32 @@ public class CreateTenant implements RequiredActionProvider, RequiredActionFacto
         var tenantName = formData.getFirst("tenantName");
 
         if (Validation.isBlank(tenantName)) {
-            Response challenge = context.form()
-                    .addError(new FormMessage("tenantName", "tenantEmptyError"))
-                    .createForm("create-tenant.ftl");
-            context.challenge(challenge);
+            challengeWithError(context, "tenantEmptyError");
             return;
-        } else if (provider.getTenantsStream(realm).map(TenantModel::getName).anyMatch(tenantName::equals)) {
-            Response challenge = context.form()
-                    .addError(new FormMessage("tenantName", "tenantExistsError"))
-                    .createForm("create-tenant.ftl");
-            context.challenge(challenge);
+        } else if (provider.tenantNameExists(realm, tenantName)) {
+            challengeWithError(context, "tenantExistsError");
             return;
         }
 
-        provider.createTenant(realm, tenantName, user);
+        try {
+            provider.createTenant(realm, tenantName, user);
+        } catch (ModelDuplicateException e) {
+            // The same name was taken by a concurrent signup after the check
+            log.debugf("Tenant name %s was taken concurrently", tenantName);
+            context.getSession().getTransactionManager().setRollbackOnly();
+            challengeWithError(context, "tenantExistsError");
+            return;
+        }
         context.success();
     }
 
+    private static void challengeWithError(RequiredActionContext context, String message) {
+        Response challenge = context.form()
+                .addError(new FormMessage("tenantName", message))
+                .createForm("create-tenant.ftl");
+        context.challenge(challenge);
+    }
+
     @Override
     public RequiredActionProvider create(KeycloakSession session) {
         return this;
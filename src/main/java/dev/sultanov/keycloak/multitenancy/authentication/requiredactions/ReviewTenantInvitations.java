@@ -1,9 +1,11 @@
 package dev.sultanov.keycloak.multitenancy.authentication.requiredactions;
 
 import dev.sultanov.keycloak.multitenancy.authentication.TenantsBean;
+import dev.sultanov.keycloak.multitenancy.metrics.TenantMetrics;
 import dev.sultanov.keycloak.multitenancy.model.TenantInvitationModel;
 import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
 import dev.sultanov.keycloak.multitenancy.email.EmailSender;
+import io.micrometer.core.instrument.Timer;
 import java.util.List;
 import java.util.stream.Collectors;
 import lombok.extern.jbosslog.JBossLog;
@@ -20,8 +22,14 @@ public class ReviewTenantInvitations implements RequiredActionProvider, Required
 
     public static final String ID = "review-tenant-invitations";
 
+    private static final Timer EVALUATION_TIMER = TenantMetrics.requiredActionTimer(ID);
+
     @Override
     public void evaluateTriggers(RequiredActionContext context) {
+        EVALUATION_TIMER.record(() -> addIfTriggered(context));
+    }
+
+    private void addIfTriggered(RequiredActionContext context) {
         log.debug("Evaluating triggers for review tenant invitations action");
         var realm = context.getRealm();
         var user = context.getUser();
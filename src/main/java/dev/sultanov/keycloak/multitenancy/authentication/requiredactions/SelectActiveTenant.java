@@ -2,9 +2,10 @@ package dev.sultanov.keycloak.multitenancy.authentication.requiredactions;
 
 import dev.sultanov.keycloak.multitenancy.authentication.IdentityProviderTenantsConfig;
 import dev.sultanov.keycloak.multitenancy.authentication.TenantsBean;
-import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import dev.sultanov.keycloak.multitenancy.metrics.TenantMetrics;
 import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
 import dev.sultanov.keycloak.multitenancy.util.Constants;
+import io.micrometer.core.instrument.Timer;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.Config;
@@ -20,12 +21,15 @@ import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RequiredActionConfigModel;
 import org.keycloak.models.RequiredActionProviderModel;
+import org.keycloak.models.UserSessionModel;
 import org.keycloak.services.managers.AuthenticationManager;
 import org.keycloak.sessions.AuthenticationSessionModel;
 import org.keycloak.utils.RequiredActionHelper;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static dev.sultanov.keycloak.multitenancy.util.Constants.IDENTITY_PROVIDER_SESSION_NOTE;
 
@@ -34,21 +38,27 @@ import static dev.sultanov.keycloak.multitenancy.util.Constants.IDENTITY_PROVIDE
 public class SelectActiveTenant implements RequiredActionProvider, RequiredActionFactory {
 
     public static final String ID = "select-active-tenant";
+    private static final Timer EVALUATION_TIMER = TenantMetrics.requiredActionTimer(ID);
     private static final int DEFAULT_MAX_AUTH_AGE = 365 * 24 * 60; // 365 days in minutes
+    private static final String IDENTITY_COOKIE_SESSION_ATTRIBUTE = SelectActiveTenant.class.getName() + ".identityCookieSession";
 
     @Override
     public void evaluateTriggers(RequiredActionContext context) {
+        EVALUATION_TIMER.record(() -> addIfTriggered(context));
+    }
+
+    private void addIfTriggered(RequiredActionContext context) {
         log.debug("Evaluating triggers for select active tenant action");
         if (getSessionNote(context, Constants.ACTIVE_TENANT_ID_SESSION_NOTE).isPresent()) {
             return;
         }
 
         log.debug("No active tenant session note found");
-        var tenantMemberships = getFilteredTenantMemberships(context);
-        if (tenantMemberships.size() == 1) {
+        var tenantIds = getSelectableTenantIds(context);
+        if (tenantIds.size() == 1) {
             log.debug("User is a member of a single tenant, setting active tenant automatically");
-            context.getAuthenticationSession().setUserSessionNote(Constants.ACTIVE_TENANT_ID_SESSION_NOTE, tenantMemberships.get(0).getTenant().getId());
-        } else if (tenantMemberships.size() > 1) {
+            context.getAuthenticationSession().setUserSessionNote(Constants.ACTIVE_TENANT_ID_SESSION_NOTE, tenantIds.get(0));
+        } else if (tenantIds.size() > 1) {
             log.debug("Tenant selection is required, adding required action");
             context.getUser().addRequiredAction(ID);
         }
@@ -56,16 +66,18 @@ public class SelectActiveTenant implements RequiredActionProvider, RequiredActio
 
     @Override
     public void requiredActionChallenge(RequiredActionContext context) {
-        var tenantMemberships = getFilteredTenantMemberships(context);
-        if (tenantMemberships.isEmpty()) {
+        var tenantIds = getSelectableTenantIds(context);
+        if (tenantIds.isEmpty()) {
             context.success();
-        } else if (tenantMemberships.size() == 1) {
+        } else if (tenantIds.size() == 1) {
             log.debugf("User is a member of a single tenant, setting active tenant automatically");
-            context.getAuthenticationSession().setUserSessionNote(Constants.ACTIVE_TENANT_ID_SESSION_NOTE, tenantMemberships.get(0).getTenant().getId());
+            context.getAuthenticationSession().setUserSessionNote(Constants.ACTIVE_TENANT_ID_SESSION_NOTE, tenantIds.get(0));
             context.success();
         } else {
             log.debug("Initializing challenge to select an active tenant");
-            Response challenge = context.form().setAttribute("data", TenantsBean.fromMembership(tenantMemberships)).createForm("select-tenant.ftl");
+            var provider = context.getSession().getProvider(TenantProvider.class);
+            var tenantNames = provider.getTenantNamesOfMember(context.getRealm(), context.getUser(), getAccessibleTenantIds(context));
+            Response challenge = context.form().setAttribute("data", TenantsBean.fromTenantNames(tenantNames)).createForm("select-tenant.ftl");
             context.challenge(challenge);
         }
     }
@@ -75,12 +87,11 @@ public class SelectActiveTenant implements RequiredActionProvider, RequiredActio
         var realm = context.getRealm();
         var user = context.getUser();
         var provider = context.getSession().getProvider(TenantProvider.class);
-        var memberships = provider.getTenantMembershipsStream(realm, user).toList();
 
         var formData = context.getHttpRequest().getDecodedFormParameters();
         var selectedTenant = formData.getFirst("tenant");
 
-        if (memberships.stream().anyMatch(membership -> membership.getTenant().getId().equals(selectedTenant))) {
+        if (selectedTenant != null && !provider.getTenantIdsOfMember(realm, user, Set.of(selectedTenant), 1).isEmpty()) {
             log.debugf("Active tenant selected %s, setting session note", selectedTenant);
             context.getAuthenticationSession().setUserSessionNote(Constants.ACTIVE_TENANT_ID_SESSION_NOTE, selectedTenant);
             context.success();
@@ -161,25 +172,30 @@ public class SelectActiveTenant implements RequiredActionProvider, RequiredActio
     }
 
     /**
-     * Retrieves and filters the tenant memberships based on Identity Provider configuration.
+     * Returns the IDs of at most two tenants that the user can select, which is enough to tell whether the user has to choose, without loading all
+     * memberships of users who are members of many tenants.
      */
-    private List<TenantMembershipModel> getFilteredTenantMemberships(RequiredActionContext context) {
-        var idpTenantsConfig = getIdentityProviderTenantsConfig(context);
+    private List<String> getSelectableTenantIds(RequiredActionContext context) {
+        var accessibleTenantIds = getAccessibleTenantIds(context);
         var provider = context.getSession().getProvider(TenantProvider.class);
-        var tenantMembershipsStream = provider.getTenantMembershipsStream(context.getRealm(), context.getUser());
+        var tenantIds = provider.getTenantIdsOfMember(context.getRealm(), context.getUser(), accessibleTenantIds, 2);
+        if (accessibleTenantIds != null && tenantIds.isEmpty()) {
+            throw new AuthenticationFlowException("User does not have access to any of IDP tenants", AuthenticationFlowError.ACCESS_DENIED);
+        }
+        return tenantIds;
+    }
+
+    /**
+     * Returns the IDs of the tenants that the Identity Provider used to log in gives access to, or {@code null} if the access is not restricted.
+     */
+    private Collection<String> getAccessibleTenantIds(RequiredActionContext context) {
+        var idpTenantsConfig = getIdentityProviderTenantsConfig(context);
         if (idpTenantsConfig.isPresent() && idpTenantsConfig.get().isTenantsSpecific()) {
             log.debug("Filtering tenant memberships based on Identity Provider configuration");
-            var tenantMembershipModels = tenantMembershipsStream.filter(
-                            membership -> idpTenantsConfig.get().getAccessibleTenantIds().contains(membership.getTenant().getId()))
-                    .toList();
-            if (tenantMembershipModels.isEmpty()) {
-                throw new AuthenticationFlowException("User does not have access to any of IDP tenants", AuthenticationFlowError.ACCESS_DENIED);
-            }
-            return tenantMembershipModels;
-        } else {
-            log.debug("Filtering not required based on Identity Provider configuration");
-            return tenantMembershipsStream.toList();
+            return idpTenantsConfig.get().getAccessibleTenantIds();
         }
+        log.debug("Filtering not required based on Identity Provider configuration");
+        return null;
     }
 
     /**
@@ -205,10 +221,26 @@ public class SelectActiveTenant implements RequiredActionProvider, RequiredActio
      * Therefore, for subsequent SSO authentications, it's necessary to retrieve the notes from the user session.
      */
     private Optional<String> getSessionNote(RequiredActionContext context, String key) {
-        var authSessionNote = Optional.ofNullable(context.getAuthenticationSession().getUserSessionNotes().get(key));
-        var userSessionNote = Optional.ofNullable(AuthenticationManager.authenticateIdentityCookie(context.getSession(), context.getRealm(), true))
-                .map(authResult -> authResult.getSession().getNote(key));
+        var authSessionNote = context.getAuthenticationSession().getUserSessionNotes().get(key);
+        if (authSessionNote != null) {
+            return Optional.of(authSessionNote);
+        }
+        return getIdentityCookieSession(context).map(userSession -> userSession.getNote(key));
+    }
 
-        return authSessionNote.or(() -> userSessionNote);
+    /**
+     * Authenticating the identity cookie verifies the cookie token and looks up the user session, so the result is kept for the rest of the request, in
+     * which both the triggers and the challenge may need session notes.
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<UserSessionModel> getIdentityCookieSession(RequiredActionContext context) {
+        var session = context.getSession();
+        var userSession = (Optional<UserSessionModel>) session.getAttribute(IDENTITY_COOKIE_SESSION_ATTRIBUTE);
+        if (userSession == null) {
+            userSession = Optional.ofNullable(AuthenticationManager.authenticateIdentityCookie(session, context.getRealm(), true))
+                    .map(AuthenticationManager.AuthResult::getSession);
+            session.setAttribute(IDENTITY_COOKIE_SESSION_ATTRIBUTE, userSession);
+        }
+        return userSession;
     }
 }
@@ -0,0 +1,16 @@
+package dev.sultanov.keycloak.multitenancy.email;
+
+import org.keycloak.models.RealmModel;
+import org.keycloak.provider.Provider;
+
+/**
+ * Queue of rendered emails which are delivered in the background, so that SMTP latency and outages do not affect the request that sends them.
+ */
+public interface EmailOutboxProvider extends Provider {
+
+    /**
+     * Records an email as part of the current transaction. It is delivered with the SMTP settings of the realm once the transaction commits, and
+     * discarded if the transaction rolls back.
+     */
+    void enqueue(RealmModel realm, String recipient, String subject, String textBody, String htmlBody);
+}
@@ -0,0 +1,7 @@
+package dev.sultanov.keycloak.multitenancy.email;
+
+import org.keycloak.provider.ProviderFactory;
+
+public interface EmailOutboxProviderFactory extends ProviderFactory<EmailOutboxProvider> {
+
+}
@@ -0,0 +1,27 @@
+package dev.sultanov.keycloak.multitenancy.email;
+
+import org.keycloak.provider.ProviderFactory;
+import org.keycloak.provider.Spi;
+
+public class EmailOutboxSpi implements Spi {
+
+    @Override
+    public boolean isInternal() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return "tenant-email-outbox-spi";
+    }
+
+    @Override
+    public Class<EmailOutboxProvider> getProviderClass() {
+        return EmailOutboxProvider.class;
+    }
+
+    @Override
+    public Class<? extends ProviderFactory<EmailOutboxProvider>> getProviderFactoryClass() {
+        return EmailOutboxProviderFactory.class;
+    }
+}
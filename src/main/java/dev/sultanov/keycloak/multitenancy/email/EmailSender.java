@@ -38,6 +38,8 @@ public class EmailSender {
 
     private static void sendEmail(KeycloakSession session, UserModel recipient, String subject, List<Object> subjectAttributes, String template,
             Map<String, Object> bodyAttributes) {
+        // Queued by the outbox sender, when it is the selected email sender, and delivered after the transaction commits
+        session.setAttribute(OutboxEmailSenderProvider.QUEUE_ATTRIBUTE, Boolean.TRUE);
         try {
             session.getProvider(EmailTemplateProvider.class)
                     .setRealm(session.getContext().getRealm())
@@ -45,6 +47,8 @@ public class EmailSender {
                     .send(subject, subjectAttributes, template, bodyAttributes);
         } catch (EmailException e) {
             ServicesLogger.LOGGER.failedToSendEmail(e);
+        } finally {
+            session.removeAttribute(OutboxEmailSenderProvider.QUEUE_ATTRIBUTE);
         }
     }
 }
\ No newline at end of file
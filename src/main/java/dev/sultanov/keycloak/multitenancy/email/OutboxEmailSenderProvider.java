@@ -0,0 +1,60 @@
+package dev.sultanov.keycloak.multitenancy.email;
+
+import java.util.Map;
+import org.keycloak.email.EmailException;
+import org.keycloak.email.EmailSenderProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.UserModel;
+
+/**
+ * Queues the emails sent by this extension in the {@link EmailOutboxProvider} instead of sending them right away. The emails are still rendered by the
+ * configured template provider during the request. All other emails, and the queued ones once they are delivered, go to the delegate sender.
+ */
+public class OutboxEmailSenderProvider implements EmailSenderProvider {
+
+    /**
+     * Session attribute which marks the emails that are queued.
+     */
+    static final String QUEUE_ATTRIBUTE = "multi-tenancy.email.queue";
+
+    private final KeycloakSession session;
+    private final EmailSenderProvider delegate;
+
+    OutboxEmailSenderProvider(KeycloakSession session, EmailSenderProvider delegate) {
+        this.session = session;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void send(Map<String, String> config, UserModel user, String subject, String textBody, String htmlBody) throws EmailException {
+        if (isQueued()) {
+            enqueue(user.getEmail(), subject, textBody, htmlBody);
+        } else {
+            delegate.send(config, user, subject, textBody, htmlBody);
+        }
+    }
+
+    @Override
+    public void send(Map<String, String> config, String address, String subject, String textBody, String htmlBody) throws EmailException {
+        if (isQueued()) {
+            enqueue(address, subject, textBody, htmlBody);
+        } else {
+            delegate.send(config, address, subject, textBody, htmlBody);
+        }
+    }
+
+    private boolean isQueued() {
+        return session.getAttribute(QUEUE_ATTRIBUTE) != null;
+    }
+
+    private void enqueue(String address, String subject, String textBody, String htmlBody) throws EmailException {
+        if (address == null) {
+            throw new EmailException("No email address configured for the recipient");
+        }
+        session.getProvider(EmailOutboxProvider.class).enqueue(session.getContext().getRealm(), address, subject, textBody, htmlBody);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,58 @@
+package dev.sultanov.keycloak.multitenancy.email;
+
+import java.util.List;
+import org.keycloak.Config.Scope;
+import org.keycloak.email.EmailSenderProvider;
+import org.keycloak.email.EmailSenderProviderFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+
+/**
+ * Keeps the default order, so that the built-in sender stays the default one. The outbox sender is only used when it is selected with
+ * {@code --spi-email-sender-provider=tenant-email-outbox}.
+ */
+public class OutboxEmailSenderProviderFactory implements EmailSenderProviderFactory {
+
+    public static final String ID = "tenant-email-outbox";
+
+    private static final String DEFAULT_DELEGATE = "default";
+
+    private String delegate;
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public EmailSenderProvider create(KeycloakSession session) {
+        return new OutboxEmailSenderProvider(session, session.getProvider(EmailSenderProvider.class, delegate));
+    }
+
+    @Override
+    public void init(Scope config) {
+        delegate = config.get("delegate", DEFAULT_DELEGATE);
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name("delegate")
+                .type("string")
+                .helpText("ID of the email sender provider which sends the emails, including the queued ones when they are delivered")
+                .defaultValue(DEFAULT_DELEGATE)
+                .add()
+                .build();
+    }
+
+    @Override
+    public void close() {
+    }
+}
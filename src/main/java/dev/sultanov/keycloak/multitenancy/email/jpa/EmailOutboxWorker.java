@@ -0,0 +1,241 @@
+package dev.sultanov.keycloak.multitenancy.email.jpa;
+
+import dev.sultanov.keycloak.multitenancy.email.EmailRecipient;
+import dev.sultanov.keycloak.multitenancy.model.entity.EmailOutboxEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.jbosslog.JBossLog;
+import org.hibernate.LockOptions;
+import org.keycloak.common.util.Time;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.email.EmailException;
+import org.keycloak.email.EmailSenderProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Delivers queued emails with a fixed pool of threads. A worker claims a batch of due emails with {@code SELECT ... FOR UPDATE SKIP LOCKED} and
+ * leases them by moving their next attempt past the lease, so that workers on all nodes of a cluster can drain the queue at the same time without
+ * sending an email twice. The claim is committed before the emails are sent, so no row lock is held while the SMTP server is contacted, and the
+ * outcome of each email is recorded in a transaction of its own. Emails of a worker that stopped before recording them are claimed again once their
+ * lease has expired. A worker keeps claiming batches until the queue has no more due emails. Failed deliveries are retried with exponential backoff.
+ */
+@JBossLog
+class EmailOutboxWorker {
+
+    private static final String LOCK_TIMEOUT_HINT = "jakarta.persistence.lock.timeout";
+    private static final long MAX_RETRY_DELAY = TimeUnit.HOURS.toMillis(6);
+    private static final long CLAIM_LEASE = TimeUnit.MINUTES.toMillis(15);
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final KeycloakSessionFactory sessionFactory;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryDelay;
+    private final ScheduledExecutorService executor;
+    private final Semaphore idleWorkers;
+
+    private final AtomicLong queueSize = new AtomicLong();
+    private final Timer deliveryLatency;
+    private final Timer sendDuration;
+    private final Counter retries;
+    private final Counter dropped;
+
+    EmailOutboxWorker(KeycloakSessionFactory sessionFactory, int workers, int batchSize, int maxAttempts, long retryDelay, long pollInterval) {
+        this.sessionFactory = sessionFactory;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = TimeUnit.SECONDS.toMillis(retryDelay);
+        this.idleWorkers = new Semaphore(workers);
+        this.executor = Executors.newScheduledThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "tenant-email-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("keycloak.tenant.email.outbox.size", queueSize, AtomicLong::get)
+                .description("Number of emails waiting for delivery or retry")
+                .register(Metrics.globalRegistry);
+        deliveryLatency = Timer.builder("keycloak.tenant.email.outbox.delivery.latency")
+                .description("Time from queueing an email to its delivery to the SMTP server")
+                .register(Metrics.globalRegistry);
+        sendDuration = Timer.builder("keycloak.tenant.email.send.duration")
+                .description("Time taken by the SMTP server to accept an email")
+                .register(Metrics.globalRegistry);
+        retries = Counter.builder("keycloak.tenant.email.outbox.failures")
+                .description("Failed email deliveries")
+                .tag("outcome", "retry")
+                .register(Metrics.globalRegistry);
+        dropped = Counter.builder("keycloak.tenant.email.outbox.failures")
+                .description("Failed email deliveries")
+                .tag("outcome", "dropped")
+                .register(Metrics.globalRegistry);
+
+        executor.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts draining the queue on an idle worker, if there is one. A busy worker keeps draining until the queue has no more due emails, so nothing
+     * is missed when all workers are busy.
+     */
+    void wakeUp() {
+        if (idleWorkers.tryAcquire()) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                idleWorkers.release();
+            }
+        }
+    }
+
+    void close() {
+        executor.shutdownNow();
+    }
+
+    private void poll() {
+        try {
+            queueSize.set(KeycloakModelUtils.runJobInTransactionWithResult(sessionFactory, session -> getEntityManager(session)
+                    .createNamedQuery("countOutboxEmails", Long.class)
+                    .getSingleResult()));
+        } catch (RuntimeException e) {
+            log.warn("Failed to count queued emails", e);
+        }
+        wakeUp();
+    }
+
+    private void drain() {
+        try {
+            List<EmailOutboxEntity> emails;
+            do {
+                emails = KeycloakModelUtils.runJobInTransactionWithResult(sessionFactory, this::claimBatch);
+                if (emails.size() == batchSize) {
+                    // There may be a backlog, so let another worker help with it
+                    wakeUp();
+                }
+                for (EmailOutboxEntity email : emails) {
+                    deliver(email);
+                }
+            } while (emails.size() == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException e) {
+            log.warn("Failed to deliver queued emails", e);
+        } finally {
+            idleWorkers.release();
+        }
+    }
+
+    /**
+     * Claims a batch of due emails. The attempt is counted when the email is claimed, so that an email whose delivery never gets recorded is still
+     * dropped after the maximum number of attempts.
+     */
+    private List<EmailOutboxEntity> claimBatch(KeycloakSession session) {
+        EntityManager em = getEntityManager(session);
+        long now = Time.currentTimeMillis();
+        List<EmailOutboxEntity> emails = em.createNamedQuery("getDueOutboxEmails", EmailOutboxEntity.class)
+                .setParameter("now", now)
+                .setMaxResults(batchSize)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(LOCK_TIMEOUT_HINT, LockOptions.SKIP_LOCKED)
+                .getResultList();
+
+        List<EmailOutboxEntity> claimed = new ArrayList<>(emails.size());
+        for (EmailOutboxEntity email : emails) {
+            if (email.getAttempts() >= maxAttempts) {
+                log.warnf("Dropping email to %s after %d delivery attempts", email.getRecipient(), email.getAttempts());
+                em.remove(email);
+                dropped.increment();
+                continue;
+            }
+            email.setAttempts(email.getAttempts() + 1);
+            email.setNextAttemptTimestamp(now + CLAIM_LEASE);
+            claimed.add(email);
+        }
+        return claimed;
+    }
+
+    private void deliver(EmailOutboxEntity email) {
+        Exception failure;
+        try {
+            failure = KeycloakModelUtils.runJobInTransactionWithResult(sessionFactory, session -> send(session, email));
+        } catch (RuntimeException e) {
+            // Counted as a failed attempt, so that an email the sender cannot handle is retried and eventually dropped like any other
+            failure = e;
+        }
+
+        Exception outcome = failure;
+        try {
+            KeycloakModelUtils.runJobInTransaction(sessionFactory, session -> record(getEntityManager(session), email.getId(), outcome));
+        } catch (RuntimeException e) {
+            log.warnf(e, "Failed to record the delivery of email to %s, it is sent again once its lease has expired", email.getRecipient());
+        }
+    }
+
+    /**
+     * Sends the email and returns the reason it could not be delivered, or {@code null} if it was delivered or its realm no longer exists.
+     */
+    private Exception send(KeycloakSession session, EmailOutboxEntity email) {
+        RealmModel realm = session.realms().getRealm(email.getRealmId());
+        if (realm == null) {
+            return null;
+        }
+        session.getContext().setRealm(realm);
+        long sendStart = System.nanoTime();
+        try {
+            session.getProvider(EmailSenderProvider.class)
+                    .send(realm.getSmtpConfig(), new EmailRecipient(email.getRecipient()), email.getSubject(), email.getTextBody(), email.getHtmlBody());
+        } catch (EmailException e) {
+            return e;
+        }
+        sendDuration.record(System.nanoTime() - sendStart, TimeUnit.NANOSECONDS);
+        deliveryLatency.record(Time.currentTimeMillis() - email.getCreatedTimestamp(), TimeUnit.MILLISECONDS);
+        return null;
+    }
+
+    private void record(EntityManager em, String id, Exception failure) {
+        EmailOutboxEntity email = em.find(EmailOutboxEntity.class, id);
+        if (email == null) {
+            return;
+        }
+        if (failure == null) {
+            em.remove(email);
+            return;
+        }
+
+        int attempts = email.getAttempts();
+        if (attempts >= maxAttempts) {
+            log.warnf(failure, "Dropping email to %s after %d failed delivery attempts", email.getRecipient(), attempts);
+            em.remove(email);
+            dropped.increment();
+            return;
+        }
+        log.debugf(failure, "Failed to deliver email to %s, attempt %d", email.getRecipient(), attempts);
+        long delay = Math.min(retryDelay << Math.min(attempts - 1, 20), MAX_RETRY_DELAY);
+        email.setNextAttemptTimestamp(Time.currentTimeMillis() + delay);
+        email.setLastError(truncate(failure.getMessage()));
+        retries.increment();
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static EntityManager getEntityManager(KeycloakSession session) {
+        return session.getProvider(JpaConnectionProvider.class).getEntityManager();
+    }
+}
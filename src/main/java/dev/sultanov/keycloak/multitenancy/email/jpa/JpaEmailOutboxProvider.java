@@ -0,0 +1,58 @@
+package dev.sultanov.keycloak.multitenancy.email.jpa;
+
+import dev.sultanov.keycloak.multitenancy.email.EmailOutboxProvider;
+import dev.sultanov.keycloak.multitenancy.model.entity.EmailOutboxEntity;
+import jakarta.persistence.EntityManager;
+import org.keycloak.common.util.Time;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+public class JpaEmailOutboxProvider implements EmailOutboxProvider {
+
+    private final KeycloakSession session;
+    private final EntityManager em;
+    private final EmailOutboxWorker worker;
+    private boolean wakeUpEnlisted;
+
+    JpaEmailOutboxProvider(KeycloakSession session, EntityManager em, EmailOutboxWorker worker) {
+        this.session = session;
+        this.em = em;
+        this.worker = worker;
+    }
+
+    @Override
+    public void enqueue(RealmModel realm, String recipient, String subject, String textBody, String htmlBody) {
+        long now = Time.currentTimeMillis();
+        EmailOutboxEntity entity = new EmailOutboxEntity();
+        entity.setId(KeycloakModelUtils.generateId());
+        entity.setRealmId(realm.getId());
+        entity.setRecipient(recipient);
+        entity.setSubject(subject);
+        entity.setTextBody(textBody);
+        entity.setHtmlBody(htmlBody);
+        entity.setCreatedTimestamp(now);
+        entity.setNextAttemptTimestamp(now);
+        em.persist(entity);
+
+        if (!wakeUpEnlisted && worker != null) {
+            // Delivers right after the commit instead of waiting for the next poll
+            session.getTransactionManager().enlistAfterCompletion(new AbstractKeycloakTransaction() {
+                @Override
+                protected void commitImpl() {
+                    worker.wakeUp();
+                }
+
+                @Override
+                protected void rollbackImpl() {
+                }
+            });
+            wakeUpEnlisted = true;
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,101 @@
+package dev.sultanov.keycloak.multitenancy.email.jpa;
+
+import dev.sultanov.keycloak.multitenancy.email.EmailOutboxProviderFactory;
+import java.util.List;
+import org.keycloak.Config.Scope;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.PostMigrationEvent;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+
+public class JpaEmailOutboxProviderFactory implements EmailOutboxProviderFactory {
+
+    public static final String ID = "jpa-email-outbox";
+
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int DEFAULT_MAX_ATTEMPTS = 8;
+    private static final long DEFAULT_RETRY_DELAY = 30;
+    private static final long DEFAULT_POLL_INTERVAL = 10;
+
+    private int workers;
+    private int batchSize;
+    private int maxAttempts;
+    private long retryDelay;
+    private long pollInterval;
+    private volatile EmailOutboxWorker worker;
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public JpaEmailOutboxProvider create(KeycloakSession session) {
+        return new JpaEmailOutboxProvider(session, session.getProvider(JpaConnectionProvider.class).getEntityManager(), worker);
+    }
+
+    @Override
+    public void init(Scope config) {
+        workers = config.getInt("workers", DEFAULT_WORKERS);
+        batchSize = config.getInt("batchSize", DEFAULT_BATCH_SIZE);
+        maxAttempts = config.getInt("maxAttempts", DEFAULT_MAX_ATTEMPTS);
+        retryDelay = config.getLong("retryDelay", DEFAULT_RETRY_DELAY);
+        pollInterval = config.getLong("pollInterval", DEFAULT_POLL_INTERVAL);
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        // The worker polls the outbox table, which only exists once the migration of the database has created it
+        factory.register(event -> {
+            if (event instanceof PostMigrationEvent) {
+                worker = new EmailOutboxWorker(factory, workers, batchSize, maxAttempts, retryDelay, pollInterval);
+            }
+        });
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name("workers")
+                .type("int")
+                .helpText("Number of threads delivering queued emails on each node")
+                .defaultValue(DEFAULT_WORKERS)
+                .add()
+                .property()
+                .name("batchSize")
+                .type("int")
+                .helpText("Maximum number of emails a worker claims at once")
+                .defaultValue(DEFAULT_BATCH_SIZE)
+                .add()
+                .property()
+                .name("maxAttempts")
+                .type("int")
+                .helpText("Number of delivery attempts after which an email is dropped")
+                .defaultValue(DEFAULT_MAX_ATTEMPTS)
+                .add()
+                .property()
+                .name("retryDelay")
+                .type("long")
+                .helpText("Delay before the first retry of a failed delivery in seconds, doubled with every further attempt")
+                .defaultValue(DEFAULT_RETRY_DELAY)
+                .add()
+                .property()
+                .name("pollInterval")
+                .type("long")
+                .helpText("Interval in seconds at which the queue is checked for emails due for delivery or retry")
+                .defaultValue(DEFAULT_POLL_INTERVAL)
+                .add()
+                .build();
+    }
+
+    @Override
+    public void close() {
+        if (worker != null) {
+            worker.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package dev.sultanov.keycloak.multitenancy.metrics;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantImport;
+import dev.sultanov.keycloak.multitenancy.model.TenantInvitationModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Records the duration of the calls of a tenant provider by method. Methods returning a stream are timed until the stream is returned, which includes
+ * the execution of the query but not the consumption of the results.
+ */
+public class MeteredTenantProvider implements TenantProvider {
+
+    private final TenantProvider delegate;
+
+    public MeteredTenantProvider(TenantProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    private static <R> R timed(String method, Supplier<R> call) {
+        return TenantMetrics.providerTimer(method).record(call);
+    }
+
+    @Override
+    public TenantModel createTenant(RealmModel realm, String name, UserModel creator) {
+        return timed("createTenant", () -> delegate.createTenant(realm, name, creator));
+    }
+
+    @Override
+    public Optional<TenantModel> getTenantById(RealmModel realm, String id) {
+        return timed("getTenantById", () -> delegate.getTenantById(realm, id));
+    }
+
+    @Override
+    public Optional<TenantModel> getTenantByName(RealmModel realm, String name) {
+        return timed("getTenantByName", () -> delegate.getTenantByName(realm, name));
+    }
+
+    @Override
+    public boolean tenantNameExists(RealmModel realm, String name) {
+        return timed("tenantNameExists", () -> delegate.tenantNameExists(realm, name));
+    }
+
+    @Override
+    public Stream<TenantModel> getTenantsStream(RealmModel realm) {
+        return timed("getTenantsStream", () -> delegate.getTenantsStream(realm));
+    }
+
+    @Override
+    public Stream<TenantModel> getTenantsStream(RealmModel realm, String name, Map<String, String> attributes, UserModel member, Integer firstResult,
+            Integer maxResults) {
+        return timed("getTenantsStream", () -> delegate.getTenantsStream(realm, name, attributes, member, firstResult, maxResults));
+    }
+
+    @Override
+    public Stream<TenantModel> getTenantsStreamAfter(RealmModel realm, String name, Map<String, String> attributes, UserModel member, String afterName,
+            String afterId, Integer maxResults) {
+        return timed("getTenantsStreamAfter", () -> delegate.getTenantsStreamAfter(realm, name, attributes, member, afterName, afterId, maxResults));
+    }
+
+    @Override
+    public List<Optional<TenantModel>> importTenants(RealmModel realm, List<TenantImport> tenants, UserModel inviter) {
+        return timed("importTenants", () -> delegate.importTenants(realm, tenants, inviter));
+    }
+
+    @Override
+    public Stream<TenantModel> getTenantsByAttributeStream(RealmModel realm, String attrName, String attrValue) {
+        return timed("getTenantsByAttributeStream", () -> delegate.getTenantsByAttributeStream(realm, attrName, attrValue));
+    }
+
+    @Override
+    public boolean deleteTenant(RealmModel realm, String id) {
+        return timed("deleteTenant", () -> delegate.deleteTenant(realm, id));
+    }
+
+    @Override
+    public Stream<TenantInvitationModel> getTenantInvitationsStream(RealmModel realm, UserModel user) {
+        return timed("getTenantInvitationsStream", () -> delegate.getTenantInvitationsStream(realm, user));
+    }
+
+    @Override
+    public Stream<TenantMembershipModel> getTenantMembershipsStream(RealmModel realm, UserModel user) {
+        return timed("getTenantMembershipsStream", () -> delegate.getTenantMembershipsStream(realm, user));
+    }
+
+    @Override
+    public Stream<TenantMembershipModel> getTenantMembershipsStream(RealmModel realm, UserModel user, Set<String> roles, Map<String, String> attributes,
+            Collection<String> tenantIds) {
+        return timed("getTenantMembershipsStreamFiltered", () -> delegate.getTenantMembershipsStream(realm, user, roles, attributes, tenantIds));
+    }
+
+    @Override
+    public List<String> getTenantIdsOfMember(RealmModel realm, UserModel user, Collection<String> tenantIds, int maxResults) {
+        return timed("getTenantIdsOfMember", () -> delegate.getTenantIdsOfMember(realm, user, tenantIds, maxResults));
+    }
+
+    @Override
+    public Map<String, String> getTenantNamesOfMember(RealmModel realm, UserModel user, Collection<String> tenantIds) {
+        return timed("getTenantNamesOfMember", () -> delegate.getTenantNamesOfMember(realm, user, tenantIds));
+    }
+
+    @Override
+    public Map<String, Map<String, Set<String>>> getMemberRoles(RealmModel realm, Collection<String> tenantIds, Collection<String> userIds) {
+        return timed("getMemberRoles", () -> delegate.getMemberRoles(realm, tenantIds, userIds));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
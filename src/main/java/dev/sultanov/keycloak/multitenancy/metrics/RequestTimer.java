@@ -0,0 +1,49 @@
+package dev.sultanov.keycloak.multitenancy.metrics;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Times a request to the tenant API from the construction of its root resource until the transaction of the request completes. The resource tag is
+ * the innermost resource which served the request, as set by the sub-resource locators.
+ */
+public class RequestTimer extends AbstractKeycloakTransaction {
+
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "HEAD");
+
+    private final long start = System.nanoTime();
+    private final String method;
+    private String resource;
+
+    private RequestTimer(String method, Class<?> resource) {
+        // The method is sent by the client, so unknown methods are not used as tag values
+        this.method = METHODS.contains(method) ? method : "OTHER";
+        this.resource = resource.getSimpleName();
+    }
+
+    public static RequestTimer start(KeycloakSession session, Class<?> resource) {
+        var timer = new RequestTimer(session.getContext().getHttpRequest().getHttpMethod(), resource);
+        session.getTransactionManager().enlistAfterCompletion(timer);
+        return timer;
+    }
+
+    public void setResource(Class<?> resource) {
+        this.resource = resource.getSimpleName();
+    }
+
+    @Override
+    protected void commitImpl() {
+        record(true);
+    }
+
+    @Override
+    protected void rollbackImpl() {
+        record(false);
+    }
+
+    private void record(boolean success) {
+        TenantMetrics.requestTimer(resource, method, success).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,72 @@
+package dev.sultanov.keycloak.multitenancy.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Meters of the extension. They are registered in the global Micrometer registry, which Keycloak exports on its metrics endpoint when metrics are
+ * enabled. Tag values come from a fixed set, such as method names, mapper or required action IDs, and never from tenant or user data, so that the number
+ * of time series stays bounded.
+ */
+public final class TenantMetrics {
+
+    private static final Map<String, Timer> PROVIDER_TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> REQUEST_TIMERS = new ConcurrentHashMap<>();
+
+    private TenantMetrics() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the timer of the calls of the given method of the JPA tenant provider, that is the calls which are not served by the tenant cache.
+     */
+    public static Timer providerTimer(String method) {
+        return PROVIDER_TIMERS.computeIfAbsent(method, key -> Timer.builder("keycloak.tenant.provider.duration")
+                .description("Duration of the tenant provider calls which are not served by the cache")
+                .tag("method", key)
+                .register(Metrics.globalRegistry));
+    }
+
+    public static Timer mapperTimer(String mapperId) {
+        return Timer.builder("keycloak.tenant.mapper.duration")
+                .description("Time spent by the tenant protocol mappers to set a token claim")
+                .tag("mapper", mapperId)
+                .register(Metrics.globalRegistry);
+    }
+
+    public static Timer requiredActionTimer(String actionId) {
+        return Timer.builder("keycloak.tenant.required.action.evaluation")
+                .description("Time spent by the tenant required actions to evaluate whether they are triggered")
+                .tag("action", actionId)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Returns the timer of the requests to the tenant API, by the resource which served the request, the HTTP method and whether the transaction of the
+     * request was committed.
+     */
+    public static Timer requestTimer(String resource, String method, boolean success) {
+        String outcome = success ? "success" : "error";
+        return REQUEST_TIMERS.computeIfAbsent(resource + ' ' + method + ' ' + outcome, key -> Timer.builder("keycloak.tenant.api.requests")
+                .description("Duration of the requests to the tenant API")
+                .tag("resource", resource)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(Metrics.globalRegistry));
+    }
+
+    /**
+     * Returns the counter of the lookups in the tenant cache, by the kind of the cached entry ({@code tenant} or {@code memberships}) and whether the
+     * entry was found.
+     */
+    public static Counter cacheRequests(String cache, boolean hit) {
+        return Counter.builder("keycloak.tenant.cache.requests")
+                .description("Lookups in the tenant cache")
+                .tag("cache", cache)
+                .tag("result", hit ? "hit" : "miss")
+                .register(Metrics.globalRegistry);
+    }
+}
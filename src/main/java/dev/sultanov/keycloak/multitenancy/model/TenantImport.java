@@ -0,0 +1,43 @@
+package dev.sultanov.keycloak.multitenancy.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tenant to be created by {@link TenantProvider#importTenants}, together with its attributes, memberships and invitations.
+ */
+public class TenantImport {
+
+    private final String name;
+    private final Map<String, List<String>> attributes;
+    private final Map<String, Set<String>> memberships;
+    private final Map<String, Set<String>> invitations;
+
+    /**
+     * @param memberships roles of the members, by user ID
+     * @param invitations roles of the invitees, by email
+     */
+    public TenantImport(String name, Map<String, List<String>> attributes, Map<String, Set<String>> memberships, Map<String, Set<String>> invitations) {
+        this.name = name;
+        this.attributes = attributes;
+        this.memberships = memberships;
+        this.invitations = invitations;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, List<String>> getAttributes() {
+        return attributes;
+    }
+
+    public Map<String, Set<String>> getMemberships() {
+        return memberships;
+    }
+
+    public Map<String, Set<String>> getInvitations() {
+        return invitations;
+    }
+}
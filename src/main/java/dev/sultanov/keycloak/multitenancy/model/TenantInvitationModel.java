@@ -14,4 +14,11 @@ public interface TenantInvitationModel {
     Set<String> getRoles();
     
     UserModel getInvitedBy();
+
+    Long getCreatedTimestamp();
+
+    /**
+     * Returns the time after which the invitation can no longer be accepted, or {@code null} if it does not expire.
+     */
+    Long getExpirationTimestamp();
 }
@@ -1,5 +1,6 @@
 package dev.sultanov.keycloak.multitenancy.model;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -33,6 +34,14 @@ public interface TenantModel {
 
     void removeAttribute(String name);
 
+    /**
+     * Replaces all attributes of the tenant. Attributes that are not present in the given map, or have no values, are removed; attributes with unchanged
+     * values are left untouched.
+     *
+     * @param attributes new attribute values by attribute name
+     */
+    void setAttributes(Map<String, List<String>> attributes);
+
     /**
      * @param name
      * @return null if there is not any value of specified attribute or first value otherwise. Don't throw exception if there are more values of the attribute
@@ -46,6 +55,10 @@ public interface TenantModel {
      */
     Stream<String> getAttributeStream(String name);
 
+    /**
+     * Returns the attributes of the tenant by name. The map and its value lists are unmodifiable, and attributes are changed with
+     * {@link #setAttribute(String, List)}, {@link #setAttributes(Map)} and {@link #removeAttribute(String)} instead.
+     */
     Map<String, List<String>> getAttributes();
 
     /* Membership */
@@ -56,10 +69,25 @@ public interface TenantModel {
 
     Stream<TenantMembershipModel> getMembershipsStream(String email, Integer firstResult, Integer maxResults);
 
+    /**
+     * Returns memberships ordered by ID that follow the membership with the given ID (keyset pagination).
+     *
+     * @param email email of the member, or {@code null} to return all memberships
+     * @param afterId ID of the last membership of the previous page, or {@code null} to start from the first membership
+     */
+    Stream<TenantMembershipModel> getMembershipsStreamAfter(String email, String afterId, Integer maxResults);
+
     Optional<TenantMembershipModel> getMembershipById(String membershipId);
 
     Optional<TenantMembershipModel> getMembershipByUser(UserModel user);
 
+    /**
+     * Returns those of the given emails that belong to members of the tenant.
+     *
+     * @param emails emails in lower case
+     */
+    Set<String> getMemberEmails(Collection<String> emails);
+
     default boolean hasMembership(UserModel user) {
         return getMembershipByUser(user).isPresent();
     }
@@ -69,12 +97,44 @@ public interface TenantModel {
     /* Invitations */
     TenantInvitationModel addInvitation(String email, UserModel inviter, Set<String> roles);
 
+    /**
+     * Invites all given emails with the same roles. Unlike {@link #addInvitation(String, UserModel, Set)}, the emails are not checked for existing
+     * invitations, which is up to the caller.
+     */
+    List<TenantInvitationModel> addInvitations(Collection<String> emails, UserModel inviter, Set<String> roles);
+
     Stream<TenantInvitationModel> getInvitationsStream();
 
+    /**
+     * Returns invitations ordered by ID.
+     *
+     * @param search part of the invitee email, or {@code null} to return all invitations
+     */
+    Stream<TenantInvitationModel> getInvitationsStream(String search, Integer firstResult, Integer maxResults);
+
+    /**
+     * Returns invitations ordered by ID that follow the invitation with the given ID (keyset pagination).
+     *
+     * @param search part of the invitee email, or {@code null} to return all invitations
+     * @param afterId ID of the last invitation of the previous page, or {@code null} to start from the first invitation
+     */
+    Stream<TenantInvitationModel> getInvitationsStreamAfter(String search, String afterId, Integer maxResults);
+
     default Stream<TenantInvitationModel> getInvitationsByEmail(String email) {
         return getInvitationsStream().filter(i -> i.getEmail().equals(email));
     }
 
+    default boolean hasInvitation(String email) {
+        return !getInvitedEmails(Set.of(email.toLowerCase())).isEmpty();
+    }
+
+    /**
+     * Returns those of the given emails that have an invitation to the tenant.
+     *
+     * @param emails emails in lower case
+     */
+    Set<String> getInvitedEmails(Collection<String> emails);
+
     boolean revokeInvitation(String id);
 
     void revokeInvitations(String email);
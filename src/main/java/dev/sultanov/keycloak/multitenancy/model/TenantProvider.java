@@ -1,7 +1,10 @@
 package dev.sultanov.keycloak.multitenancy.model;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
@@ -9,15 +12,51 @@ import org.keycloak.provider.Provider;
 
 public interface TenantProvider extends Provider {
 
+    /**
+     * @throws org.keycloak.models.ModelDuplicateException if a tenant with the same name already exists in the realm
+     */
     TenantModel createTenant(RealmModel realm, String name, UserModel creator);
 
     Optional<TenantModel> getTenantById(RealmModel realm, String id);
     
     Optional<TenantModel> getTenantByName(RealmModel realm, String name);
 
+    /**
+     * Returns whether a tenant with the given name exists in the realm, without loading the tenant.
+     */
+    boolean tenantNameExists(RealmModel realm, String name);
+
     Stream<TenantModel> getTenantsStream(RealmModel realm);
 
-    Stream<TenantModel> getTenantsStream(RealmModel realm, String name, Map<String, String> attributes, Integer firstResult, Integer maxResults);
+    default Stream<TenantModel> getTenantsStream(RealmModel realm, String name, Map<String, String> attributes, Integer firstResult, Integer maxResults) {
+        return getTenantsStream(realm, name, attributes, null, firstResult, maxResults);
+    }
+
+    /**
+     * Returns tenants ordered by name and ID.
+     *
+     * @param member user whose memberships the tenants are restricted to, or {@code null} to return tenants regardless of membership
+     */
+    Stream<TenantModel> getTenantsStream(RealmModel realm, String name, Map<String, String> attributes, UserModel member, Integer firstResult,
+            Integer maxResults);
+
+    /**
+     * Returns tenants ordered by name and ID that follow the given tenant in this order (keyset pagination).
+     *
+     * @param member user whose memberships the tenants are restricted to, or {@code null} to return tenants regardless of membership
+     * @param afterName name of the last tenant of the previous page, or {@code null} to start from the first tenant
+     * @param afterId ID of the last tenant of the previous page, or {@code null} to start from the first tenant
+     */
+    Stream<TenantModel> getTenantsStreamAfter(RealmModel realm, String name, Map<String, String> attributes, UserModel member, String afterName,
+            String afterId, Integer maxResults);
+
+    /**
+     * Creates the given tenants in bulk. Tenants whose name is already used in the realm, or by a preceding tenant of the list, are skipped.
+     *
+     * @param inviter user recorded as the inviter of the imported invitations
+     * @return the created tenant, or an empty optional if the tenant was skipped, for each tenant of the list in the same order
+     */
+    List<Optional<TenantModel>> importTenants(RealmModel realm, List<TenantImport> tenants, UserModel inviter);
 
     Stream<TenantModel> getTenantsByAttributeStream(RealmModel realm, String attrName, String attrValue);
 
@@ -26,4 +65,35 @@ public interface TenantProvider extends Provider {
     Stream<TenantInvitationModel> getTenantInvitationsStream(RealmModel realm, UserModel user);
 
     Stream<TenantMembershipModel> getTenantMembershipsStream(RealmModel realm, UserModel user);
+
+    /**
+     * Returns the memberships of the user that match all the given filters. The filters are applied by the query, so memberships which do not match are not
+     * loaded.
+     *
+     * @param roles roles of which the membership must have at least one, or an empty set for memberships with any roles
+     * @param attributes attribute values that the tenant must have, or an empty map for tenants with any attributes
+     * @param tenantIds IDs of the tenants the result is restricted to, or {@code null} to return memberships in all tenants
+     */
+    Stream<TenantMembershipModel> getTenantMembershipsStream(RealmModel realm, UserModel user, Set<String> roles, Map<String, String> attributes,
+            Collection<String> tenantIds);
+
+    /**
+     * Returns the IDs of the tenants that the user is a member of, ordered by ID, without loading the tenants and memberships.
+     *
+     * @param tenantIds IDs of the tenants the result is restricted to, or {@code null} to return all tenants of the user
+     */
+    List<String> getTenantIdsOfMember(RealmModel realm, UserModel user, Collection<String> tenantIds, int maxResults);
+
+    /**
+     * Returns the names of the tenants that the user is a member of by tenant ID, ordered by name, without loading the tenants and memberships.
+     *
+     * @param tenantIds IDs of the tenants the result is restricted to, or {@code null} to return all tenants of the user
+     */
+    Map<String, String> getTenantNamesOfMember(RealmModel realm, UserModel user, Collection<String> tenantIds);
+
+    /**
+     * Returns the roles of the given users in the given tenants by tenant ID and user ID, without loading the tenants and memberships. Users who are not
+     * members of a tenant are missing from the map of the tenant.
+     */
+    Map<String, Map<String, Set<String>>> getMemberRoles(RealmModel realm, Collection<String> tenantIds, Collection<String> userIds);
 }
@@ -0,0 +1,32 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a membership. The tenant is referenced by ID and resolved through the tenant cache.
+ */
+public class CachedMembership {
+
+    private final String id;
+    private final String tenantId;
+    private final Set<String> roles;
+
+    public CachedMembership(TenantMembershipModel membership) {
+        this.id = membership.getId();
+        this.tenantId = membership.getTenant().getId();
+        this.roles = Set.copyOf(membership.getRoles());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+}
@@ -0,0 +1,42 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a tenant and its attributes.
+ */
+public class CachedTenant {
+
+    private final String id;
+    private final String realmId;
+    private final String name;
+    private final Map<String, List<String>> attributes;
+
+    public CachedTenant(String realmId, TenantModel tenant) {
+        this.id = tenant.getId();
+        this.realmId = realmId;
+        this.name = tenant.getName();
+        Map<String, List<String>> copy = new HashMap<>();
+        tenant.getAttributes().forEach((key, values) -> copy.put(key, List.copyOf(values)));
+        this.attributes = Map.copyOf(copy);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, List<String>> getAttributes() {
+        return attributes;
+    }
+}
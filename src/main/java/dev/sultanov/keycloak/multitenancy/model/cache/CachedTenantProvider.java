@@ -0,0 +1,301 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import static dev.sultanov.keycloak.multitenancy.model.cache.TenantCacheManager.membershipsKey;
+import static dev.sultanov.keycloak.multitenancy.model.cache.TenantCacheManager.tenantKey;
+
+import dev.sultanov.keycloak.multitenancy.metrics.TenantMetrics;
+import dev.sultanov.keycloak.multitenancy.model.TenantImport;
+import dev.sultanov.keycloak.multitenancy.model.TenantInvitationModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
+import dev.sultanov.keycloak.multitenancy.model.jpa.JpaTenantProviderFactory;
+import io.micrometer.core.instrument.Counter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Read-through cache in front of the JPA tenant provider. Tenants and per-user membership lists are cached locally; writes are tracked per session and
+ * invalidated on this node and, through the {@link ClusterProvider}, on all other nodes once the transaction completes.
+ */
+public class CachedTenantProvider implements TenantProvider {
+
+    private static final Counter TENANT_HITS = TenantMetrics.cacheRequests("tenant", true);
+    private static final Counter TENANT_MISSES = TenantMetrics.cacheRequests("tenant", false);
+    private static final Counter MEMBERSHIPS_HITS = TenantMetrics.cacheRequests("memberships", true);
+    private static final Counter MEMBERSHIPS_MISSES = TenantMetrics.cacheRequests("memberships", false);
+
+    private final KeycloakSession session;
+    private final TenantCacheManager cache;
+    private final Set<String> invalidations = new HashSet<>();
+    private TenantProvider delegate;
+
+    public CachedTenantProvider(KeycloakSession session, TenantCacheManager cache) {
+        this.session = session;
+        this.cache = cache;
+    }
+
+    KeycloakSession getSession() {
+        return session;
+    }
+
+    TenantProvider getDelegate() {
+        if (delegate == null) {
+            delegate = session.getProvider(TenantProvider.class, JpaTenantProviderFactory.ID);
+        }
+        return delegate;
+    }
+
+    boolean isInvalid(String key) {
+        return invalidations.contains(key);
+    }
+
+    void registerTenantInvalidation(String tenantId) {
+        registerInvalidation(tenantKey(tenantId));
+    }
+
+    void registerMembershipsInvalidation(String realmId, String userId) {
+        registerInvalidation(membershipsKey(realmId, userId));
+    }
+
+    private void registerInvalidation(String key) {
+        if (invalidations.isEmpty()) {
+            session.getTransactionManager().enlistAfterCompletion(new AbstractKeycloakTransaction() {
+                @Override
+                protected void commitImpl() {
+                    publishInvalidations();
+                }
+
+                @Override
+                protected void rollbackImpl() {
+                    invalidations.clear();
+                }
+            });
+        }
+        invalidations.add(key);
+    }
+
+    private void publishInvalidations() {
+        Set<String> keys = Set.copyOf(invalidations);
+        invalidations.clear();
+        cache.invalidate(keys);
+        session.getProvider(ClusterProvider.class).notify(TenantCacheProviderFactory.TENANT_INVALIDATION_EVENTS,
+                new TenantCacheInvalidationEvent(keys), true, ClusterProvider.DCNotify.ALL_DCS);
+    }
+
+    @Override
+    public TenantModel createTenant(RealmModel realm, String name, UserModel creator) {
+        registerMembershipsInvalidation(realm.getId(), creator.getId());
+        return wrap(realm, getDelegate().createTenant(realm, name, creator));
+    }
+
+    @Override
+    public Optional<TenantModel> getTenantById(RealmModel realm, String id) {
+        String key = tenantKey(id);
+        CachedTenant cached = isInvalid(key) ? null : cache.get(key, CachedTenant.class);
+        (cached != null ? TENANT_HITS : TENANT_MISSES).increment();
+        if (cached != null) {
+            return realm.getId().equals(cached.getRealmId())
+                    ? Optional.of(new TenantAdapter(session, this, realm, cached, null))
+                    : Optional.empty();
+        }
+
+        long loadedRevision = cache.getCurrentRevision();
+        Optional<TenantModel> model = getDelegate().getTenantById(realm, id);
+        if (model.isEmpty()) {
+            return Optional.empty();
+        }
+        if (isInvalid(key)) {
+            return Optional.of(wrap(realm, model.get()));
+        }
+        cached = new CachedTenant(realm.getId(), model.get());
+        cache.addIfAbsent(key, cached, loadedRevision);
+        return Optional.of(new TenantAdapter(session, this, realm, cached, model.get()));
+    }
+
+    @Override
+    public Optional<TenantModel> getTenantByName(RealmModel realm, String name) {
+        return getDelegate().getTenantByName(realm, name).map(tenant -> wrap(realm, tenant));
+    }
+
+    @Override
+    public boolean tenantNameExists(RealmModel realm, String name) {
+        return getDelegate().tenantNameExists(realm, name);
+    }
+
+    @Override
+    public Stream<TenantModel> getTenantsStream(RealmModel realm) {
+        return getDelegate().getTenantsStream(realm).map(tenant -> wrap(realm, tenant));
+    }
+
+    @Override
+    public Stream<TenantModel> getTenantsStream(RealmModel realm, String name, Map<String, String> attributes, UserModel member, Integer firstResult,
+            Integer maxResults) {
+        return getDelegate().getTenantsStream(realm, name, attributes, member, firstResult, maxResults).map(tenant -> wrap(realm, tenant));
+    }
+
+    @Override
+    public Stream<TenantModel> getTenantsStreamAfter(RealmModel realm, String name, Map<String, String> attributes, UserModel member, String afterName,
+            String afterId, Integer maxResults) {
+        return getDelegate().getTenantsStreamAfter(realm, name, attributes, member, afterName, afterId, maxResults).map(tenant -> wrap(realm, tenant));
+    }
+
+    @Override
+    public List<Optional<TenantModel>> importTenants(RealmModel realm, List<TenantImport> tenants, UserModel inviter) {
+        tenants.stream()
+                .flatMap(tenant -> tenant.getMemberships().keySet().stream())
+                .distinct()
+                .forEach(userId -> registerMembershipsInvalidation(realm.getId(), userId));
+        return getDelegate().importTenants(realm, tenants, inviter).stream()
+                .map(tenant -> tenant.map(model -> wrap(realm, model)))
+                .toList();
+    }
+
+    @Override
+    public Stream<TenantModel> getTenantsByAttributeStream(RealmModel realm, String attrName, String attrValue) {
+        return getDelegate().getTenantsByAttributeStream(realm, attrName, attrValue).map(tenant -> wrap(realm, tenant));
+    }
+
+    @Override
+    public boolean deleteTenant(RealmModel realm, String id) {
+        registerTenantInvalidation(id);
+        return getDelegate().deleteTenant(realm, id);
+    }
+
+    @Override
+    public Stream<TenantInvitationModel> getTenantInvitationsStream(RealmModel realm, UserModel user) {
+        return getDelegate().getTenantInvitationsStream(realm, user).map(invitation -> wrap(realm, invitation));
+    }
+
+    @Override
+    public Stream<TenantMembershipModel> getTenantMembershipsStream(RealmModel realm, UserModel user) {
+        String key = membershipsKey(realm.getId(), user.getId());
+        CachedUserMemberships cached = isInvalid(key) ? null : cache.get(key, CachedUserMemberships.class);
+        (cached != null ? MEMBERSHIPS_HITS : MEMBERSHIPS_MISSES).increment();
+        if (cached != null) {
+            // Memberships of removed tenants are skipped, as the tenant removal invalidates only the tenant itself
+            return cached.getMemberships().stream()
+                    .flatMap(membership -> getTenantById(realm, membership.getTenantId())
+                            .map(tenant -> (TenantMembershipModel) new TenantMembershipAdapter(this, realm, tenant, membership, user.getId(), null))
+                            .stream());
+        }
+
+        long loadedRevision = cache.getCurrentRevision();
+        List<TenantMembershipModel> memberships = getDelegate().getTenantMembershipsStream(realm, user).toList();
+        if (!isInvalid(key)) {
+            cache.addIfAbsent(key, new CachedUserMemberships(memberships.stream().map(CachedMembership::new).toList()), loadedRevision);
+        }
+        return memberships.stream().map(membership -> wrap(realm, membership, user.getId()));
+    }
+
+    /**
+     * Answered from the cached memberships of the user if there are any, and otherwise with the filtered query. Roles and tenant IDs are matched before
+     * the tenants are resolved, so only the tenants of matching memberships are looked up in the cache.
+     */
+    @Override
+    public Stream<TenantMembershipModel> getTenantMembershipsStream(RealmModel realm, UserModel user, Set<String> roles, Map<String, String> attributes,
+            Collection<String> tenantIds) {
+        String key = membershipsKey(realm.getId(), user.getId());
+        CachedUserMemberships cached = isInvalid(key) ? null : cache.get(key, CachedUserMemberships.class);
+        (cached != null ? MEMBERSHIPS_HITS : MEMBERSHIPS_MISSES).increment();
+        if (cached == null) {
+            return getDelegate().getTenantMembershipsStream(realm, user, roles, attributes, tenantIds)
+                    .map(membership -> wrap(realm, membership, user.getId()));
+        }
+        return cached.getMemberships().stream()
+                .filter(membership -> tenantIds == null || tenantIds.contains(membership.getTenantId()))
+                .filter(membership -> roles.isEmpty() || membership.getRoles().stream().anyMatch(roles::contains))
+                .flatMap(membership -> getTenantById(realm, membership.getTenantId())
+                        .filter(tenant -> attributes.entrySet().stream()
+                                .allMatch(attribute -> tenant.getAttributeStream(attribute.getKey()).anyMatch(attribute.getValue()::equals)))
+                        .map(tenant -> (TenantMembershipModel) new TenantMembershipAdapter(this, realm, tenant, membership, user.getId(), null))
+                        .stream());
+    }
+
+    /**
+     * Answered from the cached memberships of the user if there are any, and otherwise with a query, as loading all memberships to count them is what
+     * this method avoids.
+     */
+    @Override
+    public List<String> getTenantIdsOfMember(RealmModel realm, UserModel user, Collection<String> tenantIds, int maxResults) {
+        String key = membershipsKey(realm.getId(), user.getId());
+        CachedUserMemberships cached = isInvalid(key) ? null : cache.get(key, CachedUserMemberships.class);
+        (cached != null ? MEMBERSHIPS_HITS : MEMBERSHIPS_MISSES).increment();
+        if (cached == null) {
+            return getDelegate().getTenantIdsOfMember(realm, user, tenantIds, maxResults);
+        }
+        return cached.getMemberships().stream()
+                .map(CachedMembership::getTenantId)
+                .filter(tenantId -> tenantIds == null || tenantIds.contains(tenantId))
+                .sorted()
+                // Memberships of removed tenants are skipped, as in getTenantMembershipsStream
+                .filter(tenantId -> getTenantById(realm, tenantId).isPresent())
+                .limit(maxResults)
+                .toList();
+    }
+
+    @Override
+    public Map<String, String> getTenantNamesOfMember(RealmModel realm, UserModel user, Collection<String> tenantIds) {
+        return getDelegate().getTenantNamesOfMember(realm, user, tenantIds);
+    }
+
+    /**
+     * Answered from the cached memberships of the users that have them, and with one query for the others.
+     */
+    @Override
+    public Map<String, Map<String, Set<String>>> getMemberRoles(RealmModel realm, Collection<String> tenantIds, Collection<String> userIds) {
+        Map<String, Map<String, Set<String>>> roles = new HashMap<>();
+        List<String> uncachedUserIds = new ArrayList<>();
+        for (String userId : userIds) {
+            String key = membershipsKey(realm.getId(), userId);
+            CachedUserMemberships cached = isInvalid(key) ? null : cache.get(key, CachedUserMemberships.class);
+            (cached != null ? MEMBERSHIPS_HITS : MEMBERSHIPS_MISSES).increment();
+            if (cached == null) {
+                uncachedUserIds.add(userId);
+                continue;
+            }
+            cached.getMemberships().stream()
+                    .filter(membership -> tenantIds.contains(membership.getTenantId()))
+                    // Memberships of removed tenants are skipped, as in getTenantMembershipsStream
+                    .filter(membership -> getTenantById(realm, membership.getTenantId()).isPresent())
+                    .forEach(membership -> roles.computeIfAbsent(membership.getTenantId(), tenantId -> new HashMap<>()).put(userId, membership.getRoles()));
+        }
+        if (!uncachedUserIds.isEmpty()) {
+            getDelegate().getMemberRoles(realm, tenantIds, uncachedUserIds)
+                    .forEach((tenantId, memberRoles) -> roles.computeIfAbsent(tenantId, id -> new HashMap<>()).putAll(memberRoles));
+        }
+        return roles;
+    }
+
+    TenantModel wrap(RealmModel realm, TenantModel tenant) {
+        return tenant instanceof TenantAdapter ? tenant : new TenantAdapter(session, this, realm, null, tenant);
+    }
+
+    TenantMembershipModel wrap(RealmModel realm, TenantMembershipModel membership, String userId) {
+        if (membership instanceof TenantMembershipAdapter) {
+            return membership;
+        }
+        TenantModel tenant = wrap(realm, membership.getTenant());
+        return new TenantMembershipAdapter(this, realm, tenant, new CachedMembership(membership), userId, membership);
+    }
+
+    TenantInvitationModel wrap(RealmModel realm, TenantInvitationModel invitation) {
+        return invitation instanceof TenantInvitationAdapter ? invitation : new TenantInvitationAdapter(this, realm, invitation);
+    }
+
+    @Override
+    public void close() {
+    }
+}
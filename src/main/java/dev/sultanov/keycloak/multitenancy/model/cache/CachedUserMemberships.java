@@ -0,0 +1,19 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of all memberships of a user in a realm.
+ */
+public class CachedUserMemberships {
+
+    private final List<CachedMembership> memberships;
+
+    public CachedUserMemberships(List<CachedMembership> memberships) {
+        this.memberships = List.copyOf(memberships);
+    }
+
+    public List<CachedMembership> getMemberships() {
+        return memberships;
+    }
+}
@@ -0,0 +1,208 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantInvitationModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Tenant backed by a {@link CachedTenant}. Reads are served from the cached snapshot until the tenant is modified in the current session, in which case
+ * the JPA model is used instead.
+ */
+public class TenantAdapter implements TenantModel {
+
+    private final KeycloakSession session;
+    private final CachedTenantProvider provider;
+    private final RealmModel realm;
+    private final CachedTenant cached;
+    private TenantModel delegate;
+
+    public TenantAdapter(KeycloakSession session, CachedTenantProvider provider, RealmModel realm, CachedTenant cached, TenantModel delegate) {
+        this.session = session;
+        this.provider = provider;
+        this.realm = realm;
+        this.cached = cached;
+        this.delegate = delegate;
+    }
+
+    private boolean isUpdated() {
+        return cached == null || provider.isInvalid(TenantCacheManager.tenantKey(cached.getId()));
+    }
+
+    private TenantModel getDelegate() {
+        if (delegate == null) {
+            delegate = provider.getDelegate().getTenantById(realm, cached.getId())
+                    .orElseThrow(() -> new IllegalStateException("Cached tenant not found: " + cached.getId()));
+        }
+        return delegate;
+    }
+
+    private TenantModel getDelegateForUpdate() {
+        provider.registerTenantInvalidation(getId());
+        return getDelegate();
+    }
+
+    @Override
+    public String getId() {
+        return cached != null ? cached.getId() : delegate.getId();
+    }
+
+    @Override
+    public String getName() {
+        return isUpdated() ? getDelegate().getName() : cached.getName();
+    }
+
+    @Override
+    public void setName(String name) {
+        getDelegateForUpdate().setName(name);
+    }
+
+    @Override
+    public RealmModel getRealm() {
+        return isUpdated() ? getDelegate().getRealm() : session.realms().getRealm(cached.getRealmId());
+    }
+
+    @Override
+    public void setSingleAttribute(String name, String value) {
+        getDelegateForUpdate().setSingleAttribute(name, value);
+    }
+
+    @Override
+    public void setAttribute(String name, List<String> values) {
+        getDelegateForUpdate().setAttribute(name, values);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        getDelegateForUpdate().removeAttribute(name);
+    }
+
+    @Override
+    public void setAttributes(Map<String, List<String>> attributes) {
+        getDelegateForUpdate().setAttributes(attributes);
+    }
+
+    @Override
+    public String getFirstAttribute(String name) {
+        if (isUpdated()) {
+            return getDelegate().getFirstAttribute(name);
+        }
+        List<String> values = cached.getAttributes().get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Stream<String> getAttributeStream(String name) {
+        if (isUpdated()) {
+            return getDelegate().getAttributeStream(name);
+        }
+        return cached.getAttributes().getOrDefault(name, List.of()).stream();
+    }
+
+    @Override
+    public Map<String, List<String>> getAttributes() {
+        if (isUpdated()) {
+            return getDelegate().getAttributes();
+        }
+        return cached.getAttributes();
+    }
+
+    @Override
+    public TenantMembershipModel grantMembership(UserModel user, Set<String> roles) {
+        provider.registerMembershipsInvalidation(realm.getId(), user.getId());
+        return provider.wrap(realm, getDelegate().grantMembership(user, roles), user.getId());
+    }
+
+    @Override
+    public Stream<TenantMembershipModel> getMembershipsStream(Integer firstResult, Integer maxResults) {
+        return getDelegate().getMembershipsStream(firstResult, maxResults).map(membership -> provider.wrap(realm, membership, null));
+    }
+
+    @Override
+    public Stream<TenantMembershipModel> getMembershipsStream(String email, Integer firstResult, Integer maxResults) {
+        return getDelegate().getMembershipsStream(email, firstResult, maxResults).map(membership -> provider.wrap(realm, membership, null));
+    }
+
+    @Override
+    public Stream<TenantMembershipModel> getMembershipsStreamAfter(String email, String afterId, Integer maxResults) {
+        return getDelegate().getMembershipsStreamAfter(email, afterId, maxResults).map(membership -> provider.wrap(realm, membership, null));
+    }
+
+    @Override
+    public Optional<TenantMembershipModel> getMembershipById(String membershipId) {
+        return getDelegate().getMembershipById(membershipId).map(membership -> provider.wrap(realm, membership, null));
+    }
+
+    @Override
+    public Optional<TenantMembershipModel> getMembershipByUser(UserModel user) {
+        return provider.getTenantMembershipsStream(realm, user)
+                .filter(membership -> membership.getTenant().getId().equals(getId()))
+                .findFirst();
+    }
+
+    @Override
+    public Set<String> getMemberEmails(Collection<String> emails) {
+        return getDelegate().getMemberEmails(emails);
+    }
+
+    @Override
+    public boolean revokeMembership(String membershipId) {
+        getDelegate().getMembershipById(membershipId)
+                .map(TenantMembershipModel::getUser)
+                .ifPresent(user -> provider.registerMembershipsInvalidation(realm.getId(), user.getId()));
+        return getDelegate().revokeMembership(membershipId);
+    }
+
+    @Override
+    public TenantInvitationModel addInvitation(String email, UserModel inviter, Set<String> roles) {
+        return provider.wrap(realm, getDelegate().addInvitation(email, inviter, roles));
+    }
+
+    @Override
+    public List<TenantInvitationModel> addInvitations(Collection<String> emails, UserModel inviter, Set<String> roles) {
+        return getDelegate().addInvitations(emails, inviter, roles).stream().map(invitation -> provider.wrap(realm, invitation)).toList();
+    }
+
+    @Override
+    public Stream<TenantInvitationModel> getInvitationsStream() {
+        return getDelegate().getInvitationsStream().map(invitation -> provider.wrap(realm, invitation));
+    }
+
+    @Override
+    public Stream<TenantInvitationModel> getInvitationsStream(String search, Integer firstResult, Integer maxResults) {
+        return getDelegate().getInvitationsStream(search, firstResult, maxResults).map(invitation -> provider.wrap(realm, invitation));
+    }
+
+    @Override
+    public Stream<TenantInvitationModel> getInvitationsStreamAfter(String search, String afterId, Integer maxResults) {
+        return getDelegate().getInvitationsStreamAfter(search, afterId, maxResults).map(invitation -> provider.wrap(realm, invitation));
+    }
+
+    @Override
+    public Stream<TenantInvitationModel> getInvitationsByEmail(String email) {
+        return getDelegate().getInvitationsByEmail(email).map(invitation -> provider.wrap(realm, invitation));
+    }
+
+    @Override
+    public Set<String> getInvitedEmails(Collection<String> emails) {
+        return getDelegate().getInvitedEmails(emails);
+    }
+
+    @Override
+    public boolean revokeInvitation(String id) {
+        return getDelegate().revokeInvitation(id);
+    }
+
+    @Override
+    public void revokeInvitations(String email) {
+        getDelegate().revokeInvitations(email);
+    }
+}
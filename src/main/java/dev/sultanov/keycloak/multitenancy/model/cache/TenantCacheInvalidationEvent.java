@@ -0,0 +1,28 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import java.util.Set;
+import org.infinispan.protostream.annotations.ProtoFactory;
+import org.infinispan.protostream.annotations.ProtoField;
+import org.infinispan.protostream.annotations.ProtoTypeId;
+import org.keycloak.cluster.ClusterEvent;
+
+@ProtoTypeId(TenantCacheSchema.TENANT_CACHE_INVALIDATION_EVENT)
+public class TenantCacheInvalidationEvent implements ClusterEvent {
+
+    private final Set<String> keys;
+
+    @ProtoFactory
+    public TenantCacheInvalidationEvent(Set<String> keys) {
+        this.keys = keys;
+    }
+
+    @ProtoField(1)
+    public Set<String> getKeys() {
+        return keys;
+    }
+
+    @Override
+    public String toString() {
+        return "TenantCacheInvalidationEvent [ keys=" + keys + " ]";
+    }
+}
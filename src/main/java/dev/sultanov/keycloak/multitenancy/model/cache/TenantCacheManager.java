@@ -0,0 +1,57 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.jbosslog.JBossLog;
+import org.infinispan.Cache;
+
+/**
+ * Node-local tenant cache. Every invalidation bumps a revision counter, and entries loaded before the latest invalidation are not added to the cache, so a
+ * slow reader can never put back data that was invalidated by a concurrent writer.
+ */
+@JBossLog
+public class TenantCacheManager {
+
+    private static final String TENANT_KEY_PREFIX = "tenant.";
+    private static final String MEMBERSHIPS_KEY_PREFIX = "memberships.";
+
+    private final Cache<String, Object> cache;
+    private final AtomicLong revision = new AtomicLong();
+
+    public TenantCacheManager(Cache<String, Object> cache) {
+        this.cache = cache;
+    }
+
+    public static String tenantKey(String tenantId) {
+        return TENANT_KEY_PREFIX + tenantId;
+    }
+
+    public static String membershipsKey(String realmId, String userId) {
+        return MEMBERSHIPS_KEY_PREFIX + realmId + "." + userId;
+    }
+
+    public long getCurrentRevision() {
+        return revision.get();
+    }
+
+    public <T> T get(String key, Class<T> type) {
+        Object value = cache.get(key);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    public void addIfAbsent(String key, Object value, long loadedRevision) {
+        if (revision.get() == loadedRevision) {
+            cache.putIfAbsent(key, value);
+        } else {
+            log.tracef("Skipping caching of %s loaded before the latest invalidation", key);
+        }
+    }
+
+    public void invalidate(Collection<String> keys) {
+        revision.incrementAndGet();
+        for (String key : keys) {
+            log.tracef("Invalidating %s", key);
+            cache.remove(key);
+        }
+    }
+}
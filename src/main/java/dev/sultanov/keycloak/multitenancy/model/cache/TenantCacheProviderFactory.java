@@ -0,0 +1,124 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
+import dev.sultanov.keycloak.multitenancy.model.TenantProviderFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.jbosslog.JBossLog;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.keycloak.Config.Scope;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.UserModel;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+
+/**
+ * Factory of the {@link CachedTenantProvider}. Its higher {@link #order()} makes it the default {@link TenantProvider}, so that all reads go through the
+ * cache unless the JPA provider is explicitly selected with {@code --spi-tenant-provider-spi-provider=jpa-tenant-provider}.
+ */
+@JBossLog
+public class TenantCacheProviderFactory implements TenantProviderFactory {
+
+    public static final String ID = "infinispan-tenant-cache";
+
+    public static final String TENANT_CACHE_NAME = "tenants";
+    public static final String TENANT_INVALIDATION_EVENTS = "TENANT_INVALIDATION_EVENTS";
+
+    private static final long DEFAULT_MAX_COUNT = 10000;
+    private static final long DEFAULT_LIFESPAN = 3600;
+
+    private volatile TenantCacheManager cacheManager;
+    private long maxCount;
+    private long lifespan;
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public int order() {
+        return 1;
+    }
+
+    @Override
+    public TenantProvider create(KeycloakSession session) {
+        lazyInit(session);
+        return new CachedTenantProvider(session, cacheManager);
+    }
+
+    private void lazyInit(KeycloakSession session) {
+        if (cacheManager == null) {
+            synchronized (this) {
+                if (cacheManager == null) {
+                    EmbeddedCacheManager embeddedCacheManager = session.getProvider(InfinispanConnectionProvider.class)
+                            .getCache(InfinispanConnectionProvider.REALM_CACHE_NAME)
+                            .getCacheManager();
+                    if (embeddedCacheManager.getCacheConfiguration(TENANT_CACHE_NAME) == null) {
+                        embeddedCacheManager.defineConfiguration(TENANT_CACHE_NAME, new ConfigurationBuilder()
+                                .clustering().cacheMode(CacheMode.LOCAL)
+                                .memory().maxCount(maxCount)
+                                .expiration().lifespan(lifespan, TimeUnit.SECONDS)
+                                .build());
+                    }
+                    Cache<String, Object> cache = embeddedCacheManager.getCache(TENANT_CACHE_NAME);
+                    TenantCacheManager manager = new TenantCacheManager(cache);
+
+                    ClusterProvider cluster = session.getProvider(ClusterProvider.class);
+                    cluster.registerListener(TENANT_INVALIDATION_EVENTS, event -> {
+                        if (event instanceof TenantCacheInvalidationEvent invalidationEvent) {
+                            manager.invalidate(invalidationEvent.getKeys());
+                        }
+                    });
+
+                    log.debugf("Tenant cache initialized with max count %d and lifespan %d seconds", maxCount, lifespan);
+                    cacheManager = manager;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void init(Scope config) {
+        maxCount = config.getLong("maxCount", DEFAULT_MAX_COUNT);
+        lifespan = config.getLong("lifespan", DEFAULT_LIFESPAN);
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        factory.register(event -> {
+            if (event instanceof UserModel.UserRemovedEvent userRemovedEvent
+                    && userRemovedEvent.getKeycloakSession().getProvider(TenantProvider.class) instanceof CachedTenantProvider provider) {
+                provider.registerMembershipsInvalidation(userRemovedEvent.getRealm().getId(), userRemovedEvent.getUser().getId());
+            }
+        });
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name("maxCount")
+                .type("long")
+                .helpText("Maximum number of entries in the local tenant cache")
+                .defaultValue(DEFAULT_MAX_COUNT)
+                .add()
+                .property()
+                .name("lifespan")
+                .type("long")
+                .helpText("Lifespan of the tenant cache entries in seconds")
+                .defaultValue(DEFAULT_LIFESPAN)
+                .add()
+                .build();
+    }
+
+    @Override
+    public void close() {
+    }
+}
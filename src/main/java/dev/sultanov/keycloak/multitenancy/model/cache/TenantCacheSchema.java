@@ -0,0 +1,18 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import org.infinispan.protostream.GeneratedSchema;
+import org.infinispan.protostream.annotations.ProtoSchema;
+
+/**
+ * ProtoStream schema of the classes sent between cluster nodes. The implementation is generated by the ProtoStream annotation processor.
+ */
+@ProtoSchema(
+        includeClasses = TenantCacheInvalidationEvent.class,
+        schemaFileName = "keycloak-multi-tenancy.proto",
+        schemaFilePath = "proto/generated",
+        schemaPackageName = "dev.sultanov.keycloak.multitenancy"
+)
+public interface TenantCacheSchema extends GeneratedSchema {
+
+    int TENANT_CACHE_INVALIDATION_EVENT = 7_700_001;
+}
@@ -0,0 +1,59 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantInvitationModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import java.util.Set;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Invitations are not cached, but their tenant has to be resolved through the cache, so that accepting an invitation invalidates the memberships of the
+ * user.
+ */
+public class TenantInvitationAdapter implements TenantInvitationModel {
+
+    private final CachedTenantProvider provider;
+    private final RealmModel realm;
+    private final TenantInvitationModel delegate;
+
+    public TenantInvitationAdapter(CachedTenantProvider provider, RealmModel realm, TenantInvitationModel delegate) {
+        this.provider = provider;
+        this.realm = realm;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public TenantModel getTenant() {
+        return provider.wrap(realm, delegate.getTenant());
+    }
+
+    @Override
+    public String getEmail() {
+        return delegate.getEmail();
+    }
+
+    @Override
+    public Set<String> getRoles() {
+        return delegate.getRoles();
+    }
+
+    @Override
+    public UserModel getInvitedBy() {
+        return delegate.getInvitedBy();
+    }
+
+    @Override
+    public Long getCreatedTimestamp() {
+        return delegate.getCreatedTimestamp();
+    }
+
+    @Override
+    public Long getExpirationTimestamp() {
+        return delegate.getExpirationTimestamp();
+    }
+}
@@ -0,0 +1,71 @@
+package dev.sultanov.keycloak.multitenancy.model.cache;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import java.util.Set;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Membership backed by a {@link CachedMembership}. Role updates are applied to the JPA model and invalidate the cached memberships of the user.
+ */
+public class TenantMembershipAdapter implements TenantMembershipModel {
+
+    private final CachedTenantProvider provider;
+    private final RealmModel realm;
+    private final TenantModel tenant;
+    private final CachedMembership cached;
+    private String userId;
+    private TenantMembershipModel delegate;
+
+    public TenantMembershipAdapter(CachedTenantProvider provider, RealmModel realm, TenantModel tenant, CachedMembership cached, String userId,
+            TenantMembershipModel delegate) {
+        this.provider = provider;
+        this.realm = realm;
+        this.tenant = tenant;
+        this.cached = cached;
+        this.userId = userId;
+        this.delegate = delegate;
+    }
+
+    private TenantMembershipModel getDelegate() {
+        if (delegate == null) {
+            delegate = provider.getDelegate().getTenantById(realm, tenant.getId())
+                    .flatMap(model -> model.getMembershipById(cached.getId()))
+                    .orElseThrow(() -> new IllegalStateException("Cached membership not found: " + cached.getId()));
+        }
+        return delegate;
+    }
+
+    @Override
+    public String getId() {
+        return cached.getId();
+    }
+
+    @Override
+    public TenantModel getTenant() {
+        return tenant;
+    }
+
+    @Override
+    public UserModel getUser() {
+        if (delegate != null) {
+            return delegate.getUser();
+        }
+        return provider.getSession().users().getUserById(realm, userId);
+    }
+
+    @Override
+    public Set<String> getRoles() {
+        return delegate != null ? delegate.getRoles() : cached.getRoles();
+    }
+
+    @Override
+    public void updateRoles(Set<String> roles) {
+        if (userId == null) {
+            userId = getDelegate().getUser().getId();
+        }
+        provider.registerMembershipsInvalidation(realm.getId(), userId);
+        getDelegate().updateRoles(roles);
+    }
+}
@@ -0,0 +1,144 @@
+package dev.sultanov.keycloak.multitenancy.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.Table;
+import java.util.Objects;
+
+@Entity
+@Table(name = "TENANT_EMAIL_OUTBOX")
+@NamedQuery(name = "getDueOutboxEmails",
+        query = "SELECT e FROM EmailOutboxEntity e WHERE e.nextAttemptTimestamp <= :now ORDER BY e.nextAttemptTimestamp")
+@NamedQuery(name = "countOutboxEmails", query = "SELECT COUNT(e) FROM EmailOutboxEntity e")
+public class EmailOutboxEntity {
+
+    @Id
+    @Column(name = "ID", length = 36)
+    private String id;
+
+    @Column(name = "REALM_ID", length = 36)
+    private String realmId;
+
+    @Column(name = "RECIPIENT")
+    private String recipient;
+
+    @Column(name = "SUBJECT")
+    private String subject;
+
+    @Column(name = "TEXT_BODY")
+    private String textBody;
+
+    @Column(name = "HTML_BODY")
+    private String htmlBody;
+
+    @Column(name = "CREATED_TIMESTAMP")
+    private long createdTimestamp;
+
+    @Column(name = "NEXT_ATTEMPT_TIMESTAMP")
+    private long nextAttemptTimestamp;
+
+    @Column(name = "ATTEMPTS")
+    private int attempts;
+
+    @Column(name = "LAST_ERROR")
+    private String lastError;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public void setRealmId(String realmId) {
+        this.realmId = realmId;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getTextBody() {
+        return textBody;
+    }
+
+    public void setTextBody(String textBody) {
+        this.textBody = textBody;
+    }
+
+    public String getHtmlBody() {
+        return htmlBody;
+    }
+
+    public void setHtmlBody(String htmlBody) {
+        this.htmlBody = htmlBody;
+    }
+
+    public long getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    public void setCreatedTimestamp(long createdTimestamp) {
+        this.createdTimestamp = createdTimestamp;
+    }
+
+    public long getNextAttemptTimestamp() {
+        return nextAttemptTimestamp;
+    }
+
+    public void setNextAttemptTimestamp(long nextAttemptTimestamp) {
+        this.nextAttemptTimestamp = nextAttemptTimestamp;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        EmailOutboxEntity that = (EmailOutboxEntity) o;
+        return id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
@@ -11,7 +11,8 @@ public class EntitiesProvider implements JpaEntityProvider {
                 TenantEntity.class,
                 TenantMembershipEntity.class,
                 TenantInvitationEntity.class,
-                TenantAttributeEntity.class
+                TenantAttributeEntity.class,
+                EmailOutboxEntity.class
         );
     }
 
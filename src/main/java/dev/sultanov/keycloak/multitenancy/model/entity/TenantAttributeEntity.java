@@ -20,7 +20,11 @@ import org.keycloak.storage.jpa.JpaHashUtils;
     @NamedQuery(name="deleteTenantAttributesByNameAndTenant", 
         query="delete from TenantAttributeEntity attr where attr.tenant.id = :tenantId and attr.name = :name"),
     @NamedQuery(name="deleteTenantAttributesByNameAndTenantOtherThan", 
-        query="delete from TenantAttributeEntity attr where attr.tenant.id = :tenantId and attr.name = :name and attr.id <> :attrId")
+        query="delete from TenantAttributeEntity attr where attr.tenant.id = :tenantId and attr.name = :name and attr.id <> :attrId"),
+    @NamedQuery(name="deleteTenantAttributesByIds",
+        query="delete from TenantAttributeEntity attr where attr.id in :ids"),
+    @NamedQuery(name="getTenantAttributesByTenantIds",
+        query="select attr from TenantAttributeEntity attr where attr.tenant.id in :tenantIds")
 })
 @Table(name="TENANT_ATTRIBUTE")
 @Entity
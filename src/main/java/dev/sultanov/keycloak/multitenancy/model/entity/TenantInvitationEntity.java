@@ -19,7 +19,23 @@ import java.util.Set;
 @Entity
 @Table(name = "TENANT_INVITATION", uniqueConstraints = {@UniqueConstraint(columnNames = {"TENANT_ID", "EMAIL"})})
 @NamedQuery(name = "getInvitationsByRealmAndEmail",
-        query = "SELECT i FROM TenantInvitationEntity i WHERE i.tenant in (SELECT o FROM TenantEntity o WHERE o.realmId = :realmId) AND lower(i.email) = lower(:search)")
+        query = "SELECT i FROM TenantInvitationEntity i JOIN FETCH i.tenant t LEFT JOIN FETCH i.roles WHERE t.realmId = :realmId AND i.email = :email "
+                + "AND (i.expirationTimestamp IS NULL OR i.expirationTimestamp > :now)")
+@NamedQuery(name = "getInvitationsByTenantId",
+        query = "SELECT i FROM TenantInvitationEntity i WHERE i.tenant.id = :tenantId AND i.email LIKE :search ESCAPE '!' "
+                + "AND (i.expirationTimestamp IS NULL OR i.expirationTimestamp > :now) ORDER BY i.id")
+@NamedQuery(name = "getInvitationsByTenantIdAndEmail",
+        query = "SELECT i FROM TenantInvitationEntity i WHERE i.tenant.id = :tenantId AND i.email = :email AND (i.expirationTimestamp IS NULL OR i.expirationTimestamp > :now)")
+@NamedQuery(name = "getInvitationsByTenantIdAfter",
+        query = "SELECT i FROM TenantInvitationEntity i WHERE i.tenant.id = :tenantId AND i.email LIKE :search ESCAPE '!' AND i.id > :afterId "
+                + "AND (i.expirationTimestamp IS NULL OR i.expirationTimestamp > :now) ORDER BY i.id")
+@NamedQuery(name = "getInvitationEmailsByTenantIdAndEmails",
+        query = "SELECT i.email FROM TenantInvitationEntity i WHERE i.tenant.id = :tenantId AND i.email IN :emails AND (i.expirationTimestamp IS NULL OR i.expirationTimestamp > :now)")
+@NamedQuery(name = "getExpiredInvitationsByTenantIdAndEmails",
+        query = "SELECT i FROM TenantInvitationEntity i WHERE i.tenant.id = :tenantId AND i.email IN :emails AND i.expirationTimestamp <= :now")
+@NamedQuery(name = "getExpiredInvitations", query = "SELECT i FROM TenantInvitationEntity i WHERE i.expirationTimestamp <= :now")
+@NamedQuery(name = "getInvitationsByTenantIds",
+        query = "SELECT DISTINCT i FROM TenantInvitationEntity i LEFT JOIN FETCH i.roles WHERE i.tenant.id IN :tenantIds")
 public class TenantInvitationEntity {
 
     @Id
@@ -42,6 +58,15 @@ public class TenantInvitationEntity {
     @Column(name = "INVITED_BY")
     private String invitedBy;
 
+    @Column(name = "CREATED_TIMESTAMP")
+    private Long createdTimestamp;
+
+    /**
+     * Time after which the invitation can no longer be accepted, or {@code null} for invitations created before expiration was introduced.
+     */
+    @Column(name = "EXPIRATION_TIMESTAMP")
+    private Long expirationTimestamp;
+
     public String getId() {
         return id;
     }
@@ -82,6 +107,22 @@ public class TenantInvitationEntity {
         this.invitedBy = invitedBy;
     }
 
+    public Long getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    public void setCreatedTimestamp(Long createdTimestamp) {
+        this.createdTimestamp = createdTimestamp;
+    }
+
+    public Long getExpirationTimestamp() {
+        return expirationTimestamp;
+    }
+
+    public void setExpirationTimestamp(Long expirationTimestamp) {
+        this.expirationTimestamp = expirationTimestamp;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -21,10 +21,33 @@ import org.keycloak.models.jpa.entities.UserEntity;
 @Table(name = "TENANT_MEMBERSHIP", uniqueConstraints = {@UniqueConstraint(columnNames = {"TENANT_ID", "USER_ID"})})
 @Entity
 @NamedQueries({
-        @NamedQuery(name = "getMembershipsByRealmIdAndUserId", query = "SELECT m FROM TenantMembershipEntity m WHERE m.tenant.realmId = :realmId AND m.user.id = :userId"),
-        @NamedQuery(name = "getMembershipsByTenantId", query = "SELECT m FROM TenantMembershipEntity m WHERE m.tenant.id = :tenantId"),
+        @NamedQuery(name = "getMembershipsByRealmIdAndUserId", query = "SELECT m FROM TenantMembershipEntity m JOIN FETCH m.tenant t LEFT JOIN FETCH m.roles WHERE t.realmId = :realmId AND m.user.id = :userId"),
+        @NamedQuery(name = "getTenantIdsByRealmIdAndUserId",
+                query = "SELECT t.id FROM TenantMembershipEntity m JOIN m.tenant t WHERE t.realmId = :realmId AND m.user.id = :userId ORDER BY t.id"),
+        @NamedQuery(name = "getTenantIdsByRealmIdAndUserIdAndTenantIds",
+                query = "SELECT t.id FROM TenantMembershipEntity m JOIN m.tenant t WHERE t.realmId = :realmId AND m.user.id = :userId "
+                        + "AND t.id IN :tenantIds ORDER BY t.id"),
+        @NamedQuery(name = "getTenantNamesByRealmIdAndUserId",
+                query = "SELECT t.id, t.name FROM TenantMembershipEntity m JOIN m.tenant t WHERE t.realmId = :realmId AND m.user.id = :userId "
+                        + "ORDER BY t.name, t.id"),
+        @NamedQuery(name = "getTenantNamesByRealmIdAndUserIdAndTenantIds",
+                query = "SELECT t.id, t.name FROM TenantMembershipEntity m JOIN m.tenant t WHERE t.realmId = :realmId AND m.user.id = :userId "
+                        + "AND t.id IN :tenantIds ORDER BY t.name, t.id"),
+        @NamedQuery(name = "getMemberRolesByRealmIdAndTenantIdsAndUserIds",
+                query = "SELECT t.id, m.user.id, r FROM TenantMembershipEntity m JOIN m.tenant t LEFT JOIN m.roles r WHERE t.realmId = :realmId "
+                        + "AND t.id IN :tenantIds AND m.user.id IN :userIds"),
+        @NamedQuery(name = "getMembershipsByTenantId", query = "SELECT m FROM TenantMembershipEntity m WHERE m.tenant.id = :tenantId ORDER BY m.id"),
+        @NamedQuery(name = "getMembershipsByTenantIdAfter",
+                query = "SELECT m FROM TenantMembershipEntity m WHERE m.tenant.id = :tenantId AND m.id > :afterId ORDER BY m.id"),
+        @NamedQuery(name = "getMembershipsByTenantIds",
+                query = "SELECT DISTINCT m FROM TenantMembershipEntity m JOIN FETCH m.user LEFT JOIN FETCH m.roles WHERE m.tenant.id IN :tenantIds"),
         @NamedQuery(name = "getMembershipsByTenantIdAndUserId", query = "SELECT m FROM TenantMembershipEntity m WHERE m.tenant.id = :tenantId AND m.user.id = :userId"),
-        @NamedQuery(name = "getMembershipsByTenantIdAndUserEmail", query = "SELECT m FROM TenantMembershipEntity m WHERE m.tenant.id = :tenantId AND m.user.email = :email")
+        @NamedQuery(name = "getMembershipsByTenantIdAndUserEmail",
+                query = "SELECT m FROM TenantMembershipEntity m WHERE m.tenant.id = :tenantId AND m.user.email = :email ORDER BY m.id"),
+        @NamedQuery(name = "getMembershipsByTenantIdAndUserEmailAfter",
+                query = "SELECT m FROM TenantMembershipEntity m WHERE m.tenant.id = :tenantId AND m.user.email = :email AND m.id > :afterId ORDER BY m.id"),
+        @NamedQuery(name = "getMemberEmailsByTenantIdAndEmails",
+                query = "SELECT m.user.email FROM TenantMembershipEntity m WHERE m.tenant.id = :tenantId AND m.user.email IN :emails")
 })
 public class TenantMembershipEntity {
 
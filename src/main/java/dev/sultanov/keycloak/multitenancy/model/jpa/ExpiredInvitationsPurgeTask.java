@@ -0,0 +1,64 @@
+package dev.sultanov.keycloak.multitenancy.model.jpa;
+
+import dev.sultanov.keycloak.multitenancy.model.entity.TenantInvitationEntity;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.common.util.Time;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.timer.ScheduledTask;
+
+/**
+ * Deletes expired invitations. The invitations are deleted in batches, each in its own transaction, so that a large backlog of expired invitations
+ * does not hold locks or grow the persistence context for the duration of the whole run.
+ */
+@JBossLog
+class ExpiredInvitationsPurgeTask implements ScheduledTask {
+
+    static final String TASK_NAME = "purge-expired-tenant-invitations";
+
+    private final int batchSize;
+
+    ExpiredInvitationsPurgeTask(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(KeycloakSession session) {
+        KeycloakSessionFactory sessionFactory = session.getKeycloakSessionFactory();
+        long now = Time.currentTimeMillis();
+
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = KeycloakModelUtils.runJobInTransactionWithResult(sessionFactory, s -> deleteBatch(s, now));
+            purged += deleted;
+        } while (deleted == batchSize);
+        if (purged > 0) {
+            log.debugf("Purged %d expired tenant invitations", purged);
+        }
+    }
+
+    private int deleteBatch(KeycloakSession session, long now) {
+        EntityManager em = entityManager(session);
+        List<TenantInvitationEntity> expired = em.createNamedQuery("getExpiredInvitations", TenantInvitationEntity.class)
+                .setParameter("now", now)
+                .setMaxResults(batchSize)
+                .getResultList();
+        // Removing the entities rather than issuing a bulk delete also removes the roles of the invitations
+        expired.forEach(em::remove);
+        return expired.size();
+    }
+
+    private static EntityManager entityManager(KeycloakSession session) {
+        return session.getProvider(JpaConnectionProvider.class).getEntityManager();
+    }
+
+    @Override
+    public String getTaskName() {
+        return TASK_NAME;
+    }
+}
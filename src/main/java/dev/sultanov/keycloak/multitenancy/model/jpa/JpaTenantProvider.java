@@ -1,5 +1,6 @@
 package dev.sultanov.keycloak.multitenancy.model.jpa;
 
+import dev.sultanov.keycloak.multitenancy.model.TenantImport;
 import dev.sultanov.keycloak.multitenancy.model.TenantInvitationModel;
 import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
 import dev.sultanov.keycloak.multitenancy.model.TenantModel;
@@ -15,18 +16,30 @@ import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.hibernate.Session;
+import org.keycloak.common.util.Time;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
+import org.keycloak.models.jpa.entities.UserEntity;
 import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.storage.jpa.JpaHashUtils;
 
@@ -35,6 +48,8 @@ import static org.keycloak.utils.StreamsUtil.closing;
 
 public class JpaTenantProvider implements TenantProvider {
 
+    private static final int IMPORT_JDBC_BATCH_SIZE = 100;
+
     private final KeycloakSession session;
     private final EntityManager em;
 
@@ -50,6 +65,7 @@ public class JpaTenantProvider implements TenantProvider {
         entity.setName(name);
         entity.setRealmId(realm.getId());
         em.persist(entity);
+        // A concurrent tenant with the same name violates UQ_TENANT_NAME_REALM_ID here, which Keycloak reports as a ModelDuplicateException
         em.flush();
 
         TenantModel tenant = new TenantAdapter(session, realm, em, entity);
@@ -79,6 +95,14 @@ public class JpaTenantProvider implements TenantProvider {
                 .map(entity -> new TenantAdapter(session, realm, em, entity));
     }
 
+    @Override
+    public boolean tenantNameExists(RealmModel realm, String name) {
+        return em.createNamedQuery("countTenantsByNameAndRealmId", Long.class)
+                .setParameter("name", name)
+                .setParameter("realmId", realm.getId())
+                .getSingleResult() > 0;
+    }
+
     @Override
     public Stream<TenantModel> getTenantsStream(RealmModel realm) {
         TypedQuery<TenantEntity> query = em.createNamedQuery("getTenantsByRealmId", TenantEntity.class);
@@ -87,7 +111,23 @@ public class JpaTenantProvider implements TenantProvider {
     }
 
     @Override
-    public Stream<TenantModel> getTenantsStream(RealmModel realm, String name, Map<String, String> attributes, Integer firstResult, Integer maxResults) {
+    public Stream<TenantModel> getTenantsStream(RealmModel realm, String name, Map<String, String> attributes, UserModel member, Integer firstResult,
+            Integer maxResults) {
+        TypedQuery<TenantEntity> query = createTenantsQuery(realm, name, attributes, member, null, null);
+        return closing(paginateQuery(query, firstResult, maxResults).getResultStream())
+                .map(tenantEntity -> new TenantAdapter(session, realm, em, tenantEntity));
+    }
+
+    @Override
+    public Stream<TenantModel> getTenantsStreamAfter(RealmModel realm, String name, Map<String, String> attributes, UserModel member, String afterName,
+            String afterId, Integer maxResults) {
+        TypedQuery<TenantEntity> query = createTenantsQuery(realm, name, attributes, member, afterName, afterId);
+        return closing(paginateQuery(query, null, maxResults).getResultStream())
+                .map(tenantEntity -> new TenantAdapter(session, realm, em, tenantEntity));
+    }
+
+    private TypedQuery<TenantEntity> createTenantsQuery(RealmModel realm, String name, Map<String, String> attributes, UserModel member, String afterName,
+            String afterId) {
         CriteriaBuilder builder = em.getCriteriaBuilder();
         CriteriaQuery<TenantEntity> queryBuilder = builder.createQuery(TenantEntity.class);
         Root<TenantEntity> root = queryBuilder.from(TenantEntity.class);
@@ -113,12 +153,105 @@ public class JpaTenantProvider implements TenantProvider {
             predicates.add(builder.and(attrNamePredicate, attrValuePredicate));
         }
 
+        if (member != null) {
+            // A user has at most one membership per tenant, so the join does not duplicate tenants
+            Join<TenantEntity, TenantMembershipEntity> membershipJoin = root.join("memberships");
+            predicates.add(builder.equal(membershipJoin.get("user").get("id"), member.getId()));
+        }
+
+        if (afterName != null && afterId != null) {
+            predicates.add(builder.or(
+                    builder.greaterThan(root.get("name"), afterName),
+                    builder.and(builder.equal(root.get("name"), afterName), builder.greaterThan(root.get("id"), afterId))));
+        }
+
         Predicate finalPredicate = builder.and(predicates.toArray(new Predicate[0]));
-        queryBuilder.where(finalPredicate).orderBy(builder.asc(root.get("name")));
+        queryBuilder.where(finalPredicate).orderBy(builder.asc(root.get("name")), builder.asc(root.get("id")));
 
-        TypedQuery<TenantEntity> query = em.createQuery(queryBuilder);
-        return closing(paginateQuery(query, firstResult, maxResults).getResultStream())
-                .map(tenantEntity -> new TenantAdapter(session, realm, em, tenantEntity));
+        return em.createQuery(queryBuilder);
+    }
+
+    @Override
+    public List<Optional<TenantModel>> importTenants(RealmModel realm, List<TenantImport> tenants, UserModel inviter) {
+        Set<String> usedNames = new HashSet<>();
+        if (!tenants.isEmpty()) {
+            usedNames.addAll(em.createNamedQuery("getTenantNamesByRealmIdAndNames", String.class)
+                    .setParameter("realmId", realm.getId())
+                    .setParameter("names", tenants.stream().map(TenantImport::getName).collect(Collectors.toSet()))
+                    .getResultList());
+        }
+
+        List<TenantEntity> entities = new ArrayList<>();
+        for (TenantImport tenant : tenants) {
+            if (!usedNames.add(tenant.getName())) {
+                entities.add(null);
+                continue;
+            }
+            TenantEntity entity = new TenantEntity();
+            entity.setId(KeycloakModelUtils.generateId());
+            entity.setName(tenant.getName());
+            entity.setRealmId(realm.getId());
+            entities.add(entity);
+        }
+
+        // Rows are persisted table by table, so that the inserts into each table are sent in JDBC batches on flush
+        Session hibernateSession = em.unwrap(Session.class);
+        Integer jdbcBatchSize = hibernateSession.getJdbcBatchSize();
+        hibernateSession.setJdbcBatchSize(IMPORT_JDBC_BATCH_SIZE);
+        try {
+            entities.stream().filter(Objects::nonNull).forEach(em::persist);
+            forEachImported(tenants, entities, (tenant, entity) -> tenant.getAttributes().forEach((name, values) -> values.forEach(value -> {
+                TenantAttributeEntity attribute = new TenantAttributeEntity();
+                attribute.setId(KeycloakModelUtils.generateId());
+                attribute.setName(name);
+                attribute.setValue(value);
+                attribute.setTenant(entity);
+                em.persist(attribute);
+                entity.getAttributes().add(attribute);
+            })));
+            forEachImported(tenants, entities, (tenant, entity) -> tenant.getMemberships().forEach((userId, roles) -> {
+                TenantMembershipEntity membership = new TenantMembershipEntity();
+                membership.setId(KeycloakModelUtils.generateId());
+                membership.setUser(em.getReference(UserEntity.class, userId));
+                membership.setTenant(entity);
+                membership.setRoles(new HashSet<>(roles));
+                em.persist(membership);
+                entity.getMemberships().add(membership);
+            }));
+            forEachImported(tenants, entities, (tenant, entity) -> tenant.getInvitations().forEach((email, roles) -> {
+                TenantInvitationEntity invitation = new TenantInvitationEntity();
+                invitation.setId(KeycloakModelUtils.generateId());
+                invitation.setTenant(entity);
+                invitation.setEmail(email.toLowerCase());
+                invitation.setInvitedBy(inviter.getId());
+                invitation.setRoles(new HashSet<>(roles));
+                TenantInvitationAdapter.initTimestamps(session, invitation);
+                em.persist(invitation);
+                entity.getInvitations().add(invitation);
+            }));
+            em.flush();
+        } finally {
+            hibernateSession.setJdbcBatchSize(jdbcBatchSize);
+        }
+
+        return entities.stream()
+                .map(entity -> {
+                    if (entity == null) {
+                        return Optional.<TenantModel>empty();
+                    }
+                    TenantModel tenant = new TenantAdapter(session, realm, em, entity);
+                    session.getKeycloakSessionFactory().publish(tenantCreatedEvent(realm, tenant));
+                    return Optional.of(tenant);
+                })
+                .toList();
+    }
+
+    private static void forEachImported(List<TenantImport> tenants, List<TenantEntity> entities, BiConsumer<TenantImport, TenantEntity> action) {
+        for (int i = 0; i < tenants.size(); i++) {
+            if (entities.get(i) != null) {
+                action.accept(tenants.get(i), entities.get(i));
+            }
+        }
     }
 
     @Override
@@ -150,10 +283,16 @@ public class JpaTenantProvider implements TenantProvider {
     }
 
     public Stream<TenantInvitationModel> getTenantInvitationsStream(RealmModel realm, UserModel user) {
+        if (user.getEmail() == null) {
+            return Stream.empty();
+        }
+        // Invitation emails are stored in lower case, so that the lookup can use the email index
         TypedQuery<TenantInvitationEntity> query = em.createNamedQuery("getInvitationsByRealmAndEmail", TenantInvitationEntity.class);
         query.setParameter("realmId", realm.getId());
-        query.setParameter("search", user.getEmail());
-        return query.getResultStream().map(i -> new TenantInvitationAdapter(session, realm, em, i));
+        query.setParameter("email", user.getEmail().toLowerCase());
+        query.setParameter("now", Time.currentTimeMillis());
+        // A list rather than a scrolled stream, as the fetched role rows of an invitation are not necessarily adjacent
+        return query.getResultList().stream().map(i -> new TenantInvitationAdapter(session, realm, em, i));
     }
 
     @Override
@@ -161,7 +300,101 @@ public class JpaTenantProvider implements TenantProvider {
         TypedQuery<TenantMembershipEntity> query = em.createNamedQuery("getMembershipsByRealmIdAndUserId", TenantMembershipEntity.class);
         query.setParameter("realmId", realm.getId());
         query.setParameter("userId", user.getId());
-        return query.getResultStream().map(m -> new TenantMembershipAdapter(session, realm, em, m));
+        // A list rather than a scrolled stream, as the fetched role rows of a membership are not necessarily adjacent
+        return query.getResultList().stream().map(m -> new TenantMembershipAdapter(session, realm, em, m));
+    }
+
+    @Override
+    public Stream<TenantMembershipModel> getTenantMembershipsStream(RealmModel realm, UserModel user, Set<String> roles, Map<String, String> attributes,
+            Collection<String> tenantIds) {
+        if (tenantIds != null && tenantIds.isEmpty()) {
+            return Stream.empty();
+        }
+
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<TenantMembershipEntity> queryBuilder = builder.createQuery(TenantMembershipEntity.class);
+        Root<TenantMembershipEntity> root = queryBuilder.from(TenantMembershipEntity.class);
+        Join<TenantMembershipEntity, TenantEntity> tenantJoin = root.join("tenant");
+        root.fetch("tenant");
+        root.fetch("roles", JoinType.LEFT);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.equal(tenantJoin.get("realmId"), realm.getId()));
+        predicates.add(builder.equal(root.get("user").get("id"), user.getId()));
+
+        if (!roles.isEmpty()) {
+            // A subquery, as joining the roles would return a membership once for each matching role
+            Subquery<String> roleQuery = queryBuilder.subquery(String.class);
+            Root<TenantMembershipEntity> roleRoot = roleQuery.correlate(root);
+            Join<TenantMembershipEntity, String> roleJoin = roleRoot.join("roles");
+            roleQuery.select(roleJoin).where(roleJoin.in(roles));
+            predicates.add(builder.exists(roleQuery));
+        }
+
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            Join<TenantEntity, TenantAttributeEntity> attributeJoin = tenantJoin.join("attributes");
+            predicates.add(builder.equal(attributeJoin.get("name"), entry.getKey()));
+            predicates.add(builder.equal(attributeJoin.get("value"), entry.getValue()));
+        }
+
+        if (tenantIds != null) {
+            predicates.add(tenantJoin.get("id").in(tenantIds));
+        }
+
+        queryBuilder.where(builder.and(predicates.toArray(new Predicate[0])));
+        // A list rather than a scrolled stream, as the rows of a membership with several roles are not necessarily adjacent
+        return em.createQuery(queryBuilder).getResultList().stream()
+                .map(m -> new TenantMembershipAdapter(session, realm, em, m));
+    }
+
+    @Override
+    public List<String> getTenantIdsOfMember(RealmModel realm, UserModel user, Collection<String> tenantIds, int maxResults) {
+        return memberTenantsQuery(tenantIds == null ? "getTenantIdsByRealmIdAndUserId" : "getTenantIdsByRealmIdAndUserIdAndTenantIds", String.class,
+                realm, user, tenantIds)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    @Override
+    public Map<String, String> getTenantNamesOfMember(RealmModel realm, UserModel user, Collection<String> tenantIds) {
+        Map<String, String> names = new LinkedHashMap<>();
+        memberTenantsQuery(tenantIds == null ? "getTenantNamesByRealmIdAndUserId" : "getTenantNamesByRealmIdAndUserIdAndTenantIds", Object[].class,
+                realm, user, tenantIds)
+                .getResultStream()
+                .forEach(row -> names.put((String) row[0], (String) row[1]));
+        return names;
+    }
+
+    @Override
+    public Map<String, Map<String, Set<String>>> getMemberRoles(RealmModel realm, Collection<String> tenantIds, Collection<String> userIds) {
+        Map<String, Map<String, Set<String>>> roles = new HashMap<>();
+        if (tenantIds.isEmpty() || userIds.isEmpty()) {
+            return roles;
+        }
+        // The query returns a row for each role, and a row with a null role for memberships without roles
+        em.createNamedQuery("getMemberRolesByRealmIdAndTenantIdsAndUserIds", Object[].class)
+                .setParameter("realmId", realm.getId())
+                .setParameter("tenantIds", tenantIds)
+                .setParameter("userIds", userIds)
+                .getResultStream()
+                .forEach(row -> {
+                    Set<String> memberRoles = roles.computeIfAbsent((String) row[0], tenantId -> new HashMap<>())
+                            .computeIfAbsent((String) row[1], userId -> new HashSet<>());
+                    if (row[2] != null) {
+                        memberRoles.add((String) row[2]);
+                    }
+                });
+        return roles;
+    }
+
+    private <T> TypedQuery<T> memberTenantsQuery(String name, Class<T> resultClass, RealmModel realm, UserModel user, Collection<String> tenantIds) {
+        TypedQuery<T> query = em.createNamedQuery(name, resultClass);
+        query.setParameter("realmId", realm.getId());
+        query.setParameter("userId", user.getId());
+        if (tenantIds != null) {
+            query.setParameter("tenantIds", tenantIds);
+        }
+        return query;
     }
 
     public TenantModel.TenantCreatedEvent tenantCreatedEvent(RealmModel realm, TenantModel tenant) {
@@ -1,33 +1,101 @@
 package dev.sultanov.keycloak.multitenancy.model.jpa;
 
+import dev.sultanov.keycloak.multitenancy.metrics.MeteredTenantProvider;
+import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
 import dev.sultanov.keycloak.multitenancy.model.TenantProviderFactory;
 import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.keycloak.Config.Scope;
 import org.keycloak.connections.jpa.JpaConnectionProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.PostMigrationEvent;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+import org.keycloak.services.scheduled.ClusterAwareScheduledTaskRunner;
+import org.keycloak.timer.TimerProvider;
 
 public class JpaTenantProviderFactory implements TenantProviderFactory {
 
     public static final String ID = "jpa-tenant-provider";
 
+    private static final long DEFAULT_INVITATION_LIFESPAN = TimeUnit.DAYS.toSeconds(30);
+    private static final long DEFAULT_PURGE_INTERVAL = TimeUnit.HOURS.toSeconds(1);
+    private static final int DEFAULT_PURGE_BATCH_SIZE = 500;
+
+    private long invitationLifespan;
+    private long purgeInterval;
+    private int purgeBatchSize;
+
     @Override
     public String getId() {
         return ID;
     }
 
     @Override
-    public JpaTenantProvider create(KeycloakSession session) {
+    public TenantProvider create(KeycloakSession session) {
         EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
-        return new JpaTenantProvider(session, em);
+        return new MeteredTenantProvider(new JpaTenantProvider(session, em));
     }
 
     @Override
     public void init(Scope config) {
+        invitationLifespan = config.getLong("invitationLifespan", DEFAULT_INVITATION_LIFESPAN);
+        purgeInterval = config.getLong("purgeInterval", DEFAULT_PURGE_INTERVAL);
+        purgeBatchSize = config.getInt("purgeBatchSize", DEFAULT_PURGE_BATCH_SIZE);
     }
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
+        factory.register(event -> {
+            if (event instanceof PostMigrationEvent && invitationLifespan > 0) {
+                schedulePurge(factory);
+            }
+        });
+    }
+
+    /**
+     * The purge runs on one node of the cluster at a time, and only after the migration of the database has added the expiration columns.
+     */
+    private void schedulePurge(KeycloakSessionFactory factory) {
+        long interval = TimeUnit.SECONDS.toMillis(purgeInterval);
+        var task = new ExpiredInvitationsPurgeTask(purgeBatchSize);
+        KeycloakModelUtils.runJobInTransaction(factory, session -> session.getProvider(TimerProvider.class)
+                .schedule(new ClusterAwareScheduledTaskRunner(factory, task, interval), interval, ExpiredInvitationsPurgeTask.TASK_NAME));
+    }
+
+    /**
+     * Returns the lifespan of new invitations in seconds, or 0 if invitations do not expire.
+     */
+    static long getInvitationLifespan(KeycloakSession session) {
+        var factory = (JpaTenantProviderFactory) session.getKeycloakSessionFactory().getProviderFactory(TenantProvider.class, ID);
+        return factory == null ? 0 : factory.invitationLifespan;
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name("invitationLifespan")
+                .type("long")
+                .helpText("Time in seconds after which an invitation can no longer be accepted and is deleted, 0 for invitations that do not expire")
+                .defaultValue(DEFAULT_INVITATION_LIFESPAN)
+                .add()
+                .property()
+                .name("purgeInterval")
+                .type("long")
+                .helpText("Interval in seconds at which expired invitations are deleted")
+                .defaultValue(DEFAULT_PURGE_INTERVAL)
+                .add()
+                .property()
+                .name("purgeBatchSize")
+                .type("int")
+                .helpText("Maximum number of expired invitations deleted in one transaction")
+                .defaultValue(DEFAULT_PURGE_BATCH_SIZE)
+                .add()
+                .build();
     }
 
     @Override
@@ -9,8 +9,10 @@ import dev.sultanov.keycloak.multitenancy.model.entity.TenantMembershipEntity;
 import dev.sultanov.keycloak.multitenancy.model.entity.TenantAttributeEntity;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -19,7 +21,9 @@ import java.util.Objects;
 import java.util.List;
 import java.util.ArrayList;
 
-import org.keycloak.common.util.MultivaluedHashMap;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.keycloak.common.util.Time;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
@@ -33,11 +37,17 @@ import static org.keycloak.common.util.CollectionUtil.collectionEquals;
 
 public class TenantAdapter implements TenantModel, JpaModel<TenantEntity> {
 
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final int INSERT_JDBC_BATCH_SIZE = 100;
+
     private final KeycloakSession session;
     private final TenantEntity tenant;
     private final EntityManager em;
     private final RealmModel realm;
 
+    private Map<String, List<TenantAttributeEntity>> attributeIndex;
+    private Map<String, List<String>> attributeView;
+
     public TenantAdapter(KeycloakSession session, RealmModel realm, EntityManager em, TenantEntity tenant) {
         this.session = session;
         this.em = em;
@@ -67,29 +77,19 @@ public class TenantAdapter implements TenantModel, JpaModel<TenantEntity> {
 
     @Override
     public void setSingleAttribute(String name, String value) {
-        boolean found = false;
-        List<TenantAttributeEntity> toRemove = new ArrayList<>();
-        for (TenantAttributeEntity attr : tenant.getAttributes()) {
-            if (attr.getName().equals(name)) {
-                if (!found) {
-                    attr.setValue(value);
-                    found = true;
-                } else {
-                    toRemove.add(attr);
-                }
+        List<TenantAttributeEntity> entities = attributeIndex().get(name);
+        if (entities == null) {
+            persistAttributeValue(name, value);
+        } else {
+            entities.get(0).setValue(value);
+            if (entities.size() > 1) {
+                List<TenantAttributeEntity> toRemove = entities.subList(1, entities.size());
+                tenant.getAttributes().removeAll(new HashSet<>(toRemove));
+                toRemove.forEach(em::remove);
+                toRemove.clear();
             }
         }
-
-        for (TenantAttributeEntity attr : toRemove) {
-            em.remove(attr);
-            tenant.getAttributes().remove(attr);
-        }
-
-        if (found) {
-            return;
-        }
-
-        persistAttributeValue(name, value);
+        attributeChanged(name);
     }
 
     @Override
@@ -107,6 +107,72 @@ public class TenantAdapter implements TenantModel, JpaModel<TenantEntity> {
         for (String value : values) {
             persistAttributeValue(name, value);
         }
+        attributeChanged(name);
+    }
+
+    @Override
+    public void setAttributes(Map<String, List<String>> attributes) {
+        Map<String, List<TenantAttributeEntity>> current = attributeIndex();
+
+        List<TenantAttributeEntity> toRemove = new ArrayList<>();
+        current.forEach((name, entities) -> {
+            if (!attributes.containsKey(name)) {
+                toRemove.addAll(entities);
+            }
+        });
+
+        List<Map.Entry<String, String>> toPersist = new ArrayList<>();
+        attributes.forEach((name, values) -> {
+            List<String> newValues = ofNullable(values).orElse(List.of());
+            List<TenantAttributeEntity> entities = current.getOrDefault(name, List.of());
+            if (collectionEquals(entities.stream().map(TenantAttributeEntity::getValue).toList(), newValues)) {
+                return;
+            }
+            // Existing rows are reused for the new values, so that a changed value is an update instead of a delete and an insert
+            for (int i = 0; i < Math.max(entities.size(), newValues.size()); i++) {
+                if (i >= newValues.size()) {
+                    toRemove.add(entities.get(i));
+                } else if (i >= entities.size()) {
+                    toPersist.add(Map.entry(name, newValues.get(i)));
+                } else if (!Objects.equals(entities.get(i).getValue(), newValues.get(i))) {
+                    entities.get(i).setValue(newValues.get(i));
+                }
+            }
+        });
+
+        if (!toRemove.isEmpty()) {
+            tenant.getAttributes().removeAll(new HashSet<>(toRemove));
+            List<String> ids = toRemove.stream().map(TenantAttributeEntity::getId).toList();
+            for (int i = 0; i < ids.size(); i += DELETE_BATCH_SIZE) {
+                em.createNamedQuery("deleteTenantAttributesByIds")
+                        .setParameter("ids", ids.subList(i, Math.min(i + DELETE_BATCH_SIZE, ids.size())))
+                        .executeUpdate();
+            }
+            toRemove.forEach(em::detach);
+        }
+        if (!toPersist.isEmpty()) {
+            persistInJdbcBatches(() -> toPersist.forEach(attr -> persistAttributeValue(attr.getKey(), attr.getValue())));
+        }
+
+        // Rebuilt on the next access, as most of the entries may have changed
+        attributeIndex = null;
+        attributeView = null;
+    }
+
+    /**
+     * Runs the given persist operations and flushes them with a larger JDBC batch size, so that the inserts are sent to the database in batches rather
+     * than one statement at a time. The batch size of the session is restored afterwards.
+     */
+    private void persistInJdbcBatches(Runnable persist) {
+        Session hibernateSession = em.unwrap(Session.class);
+        Integer jdbcBatchSize = hibernateSession.getJdbcBatchSize();
+        hibernateSession.setJdbcBatchSize(INSERT_JDBC_BATCH_SIZE);
+        try {
+            persist.run();
+            em.flush();
+        } finally {
+            hibernateSession.setJdbcBatchSize(jdbcBatchSize);
+        }
     }
 
     private void persistAttributeValue(String name, String value) {
@@ -117,43 +183,78 @@ public class TenantAdapter implements TenantModel, JpaModel<TenantEntity> {
         attr.setTenant(tenant);
         em.persist(attr);
         tenant.getAttributes().add(attr);
+        if (attributeIndex != null) {
+            attributeIndex.computeIfAbsent(name, key -> new ArrayList<>()).add(attr);
+        }
     }
 
     @Override
     public void removeAttribute(String name) {
-        Iterator<TenantAttributeEntity> it = tenant.getAttributes().iterator();
-        while (it.hasNext()) {
-            TenantAttributeEntity attr = it.next();
-            if (attr.getName().equals(name)) {
-                it.remove();
-                em.remove(attr);
-            }
+        List<TenantAttributeEntity> entities = attributeIndex().remove(name);
+        if (entities == null) {
+            return;
         }
+        tenant.getAttributes().removeAll(new HashSet<>(entities));
+        entities.forEach(em::remove);
+        attributeChanged(name);
     }
 
     @Override
     public String getFirstAttribute(String name) {
-        for (TenantAttributeEntity attr : tenant.getAttributes()) {
-            if (attr.getName().equals(name)) {
-                return attr.getValue();
-            }
-        }
-        return null;
+        List<TenantAttributeEntity> entities = attributeIndex().get(name);
+        return entities == null ? null : entities.get(0).getValue();
     }
 
     @Override
     public Stream<String> getAttributeStream(String name) {
-        return tenant.getAttributes().stream().filter(attribute -> Objects.equals(attribute.getName(), name))
-                .map(TenantAttributeEntity::getValue);
+        return getAttributes().getOrDefault(name, List.of()).stream();
     }
 
     @Override
     public Map<String, List<String>> getAttributes() {
-        MultivaluedHashMap<String, String> result = new MultivaluedHashMap<>();
-        for (TenantAttributeEntity attr : tenant.getAttributes()) {
-            result.add(attr.getName(), attr.getValue());
+        if (attributeView == null) {
+            Map<String, List<String>> view = new LinkedHashMap<>();
+            attributeIndex().forEach((name, entities) -> view.put(name, toValues(entities)));
+            attributeView = Collections.unmodifiableMap(view);
         }
-        return result;
+        return attributeView;
+    }
+
+    /**
+     * Attribute entities of the tenant grouped by name, built on first access. Every list in the index is non-empty.
+     */
+    private Map<String, List<TenantAttributeEntity>> attributeIndex() {
+        if (attributeIndex == null) {
+            attributeIndex = new LinkedHashMap<>();
+            for (TenantAttributeEntity attr : tenant.getAttributes()) {
+                attributeIndex.computeIfAbsent(attr.getName(), key -> new ArrayList<>()).add(attr);
+            }
+        }
+        return attributeIndex;
+    }
+
+    /**
+     * Replaces the entry of the given attribute in a copy of the attribute view, so that maps returned by {@link #getAttributes()} earlier are not
+     * modified.
+     */
+    private void attributeChanged(String name) {
+        if (attributeView == null) {
+            return;
+        }
+        Map<String, List<String>> view = new LinkedHashMap<>(attributeView);
+        List<TenantAttributeEntity> entities = attributeIndex().get(name);
+        if (entities == null) {
+            view.remove(name);
+        } else {
+            view.put(name, toValues(entities));
+        }
+        attributeView = Collections.unmodifiableMap(view);
+    }
+
+    private static List<String> toValues(List<TenantAttributeEntity> entities) {
+        List<String> values = new ArrayList<>(entities.size());
+        entities.forEach(attr -> values.add(attr.getValue()));
+        return Collections.unmodifiableList(values);
     }
 
     @Override
@@ -186,6 +287,19 @@ public class TenantAdapter implements TenantModel, JpaModel<TenantEntity> {
                 .map((membership) -> new TenantMembershipAdapter(session, realm, em, membership));
     }
 
+    @Override
+    public Stream<TenantMembershipModel> getMembershipsStreamAfter(String email, String afterId, Integer max) {
+        TypedQuery<TenantMembershipEntity> query = em.createNamedQuery(email == null ? "getMembershipsByTenantIdAfter" : "getMembershipsByTenantIdAndUserEmailAfter",
+                TenantMembershipEntity.class);
+        query.setParameter("tenantId", tenant.getId());
+        query.setParameter("afterId", afterId == null ? "" : afterId);
+        if (email != null) {
+            query.setParameter("email", email);
+        }
+        return PaginationUtils.paginateQuery(query, null, max).getResultStream()
+                .map((membership) -> new TenantMembershipAdapter(session, realm, em, membership));
+    }
+
     @Override
     public Optional<TenantMembershipModel> getMembershipById(String membershipId) {
         TenantMembershipEntity membership = em.find(TenantMembershipEntity.class, membershipId);
@@ -204,6 +318,17 @@ public class TenantAdapter implements TenantModel, JpaModel<TenantEntity> {
         return query.getResultStream().map(m -> (TenantMembershipModel) new TenantMembershipAdapter(session, realm, em, m)).findFirst();
     }
 
+    @Override
+    public Set<String> getMemberEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(em.createNamedQuery("getMemberEmailsByTenantIdAndEmails", String.class)
+                .setParameter("tenantId", tenant.getId())
+                .setParameter("emails", emails)
+                .getResultList());
+    }
+
     @Override
     public boolean revokeMembership(String membershipId) {
         var membershipEntity = em.find(TenantMembershipEntity.class, membershipId);
@@ -222,31 +347,146 @@ public class TenantAdapter implements TenantModel, JpaModel<TenantEntity> {
 
     @Override
     public TenantInvitationModel addInvitation(String email, UserModel inviter, Set<String> roles) {
+        removeExpiredInvitations(List.of(email.toLowerCase()));
         TenantInvitationEntity entity = new TenantInvitationEntity();
         entity.setId(KeycloakModelUtils.generateId());
         entity.setTenant(tenant);
         entity.setEmail(email.toLowerCase());
         entity.setInvitedBy(inviter.getId());
         entity.setRoles(new HashSet<>(roles));
+        TenantInvitationAdapter.initTimestamps(session, entity);
         em.persist(entity);
         em.flush();
         tenant.getInvitations().add(entity);
         return new TenantInvitationAdapter(session, realm, em, entity);
     }
 
+    @Override
+    public List<TenantInvitationModel> addInvitations(Collection<String> emails, UserModel inviter, Set<String> roles) {
+        removeExpiredInvitations(emails.stream().map(String::toLowerCase).toList());
+        List<TenantInvitationEntity> entities = new ArrayList<>(emails.size());
+        // The invitations and their roles are sent to the database in JDBC batches
+        persistInJdbcBatches(() -> {
+            for (String email : emails) {
+                TenantInvitationEntity entity = new TenantInvitationEntity();
+                entity.setId(KeycloakModelUtils.generateId());
+                entity.setTenant(tenant);
+                entity.setEmail(email.toLowerCase());
+                entity.setInvitedBy(inviter.getId());
+                entity.setRoles(new HashSet<>(roles));
+                TenantInvitationAdapter.initTimestamps(session, entity);
+                em.persist(entity);
+                tenant.getInvitations().add(entity);
+                entities.add(entity);
+            }
+        });
+        return entities.stream()
+                .map(entity -> (TenantInvitationModel) new TenantInvitationAdapter(session, realm, em, entity))
+                .toList();
+    }
+
+    /**
+     * Expired invitations which have not been purged yet still occupy the unique email constraint of the tenant, so they are removed before the email is
+     * invited again.
+     */
+    private void removeExpiredInvitations(List<String> emails) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        List<TenantInvitationEntity> expired = em.createNamedQuery("getExpiredInvitationsByTenantIdAndEmails", TenantInvitationEntity.class)
+                .setParameter("tenantId", tenant.getId())
+                .setParameter("emails", emails)
+                .setParameter("now", Time.currentTimeMillis())
+                .getResultList();
+        if (!expired.isEmpty()) {
+            expired.forEach(this::removeInvitation);
+            em.flush();
+        }
+    }
+
     @Override
     public Stream<TenantInvitationModel> getInvitationsStream() {
-        return tenant.getInvitations().stream().map(i -> new TenantInvitationAdapter(session, realm, em, i));
+        long now = Time.currentTimeMillis();
+        return tenant.getInvitations().stream()
+                .filter(i -> i.getExpirationTimestamp() == null || i.getExpirationTimestamp() > now)
+                .map(i -> new TenantInvitationAdapter(session, realm, em, i));
+    }
+
+    @Override
+    public Stream<TenantInvitationModel> getInvitationsStream(String search, Integer first, Integer max) {
+        TypedQuery<TenantInvitationEntity> query = em.createNamedQuery("getInvitationsByTenantId", TenantInvitationEntity.class);
+        query.setParameter("tenantId", tenant.getId());
+        query.setParameter("search", toSearchPattern(search));
+        query.setParameter("now", Time.currentTimeMillis());
+        return PaginationUtils.paginateQuery(query, first, max).getResultStream()
+                .map(invitation -> new TenantInvitationAdapter(session, realm, em, invitation));
+    }
+
+    @Override
+    public Stream<TenantInvitationModel> getInvitationsStreamAfter(String search, String afterId, Integer max) {
+        TypedQuery<TenantInvitationEntity> query = em.createNamedQuery("getInvitationsByTenantIdAfter", TenantInvitationEntity.class);
+        query.setParameter("tenantId", tenant.getId());
+        query.setParameter("search", toSearchPattern(search));
+        query.setParameter("afterId", afterId == null ? "" : afterId);
+        query.setParameter("now", Time.currentTimeMillis());
+        return PaginationUtils.paginateQuery(query, null, max).getResultStream()
+                .map(invitation -> new TenantInvitationAdapter(session, realm, em, invitation));
+    }
+
+    @Override
+    public Stream<TenantInvitationModel> getInvitationsByEmail(String email) {
+        TypedQuery<TenantInvitationEntity> query = em.createNamedQuery("getInvitationsByTenantIdAndEmail", TenantInvitationEntity.class);
+        query.setParameter("tenantId", tenant.getId());
+        query.setParameter("email", email.toLowerCase());
+        query.setParameter("now", Time.currentTimeMillis());
+        return query.getResultStream().map(invitation -> new TenantInvitationAdapter(session, realm, em, invitation));
+    }
+
+    /**
+     * Emails are stored in lower case, so the search is case-insensitive. Wildcards in the search are matched literally.
+     */
+    private static String toSearchPattern(String search) {
+        return search == null ? "%" : "%" + search.toLowerCase().replaceAll("[!%_]", "!$0") + "%";
+    }
+
+    @Override
+    public Set<String> getInvitedEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(em.createNamedQuery("getInvitationEmailsByTenantIdAndEmails", String.class)
+                .setParameter("tenantId", tenant.getId())
+                .setParameter("emails", emails)
+                .setParameter("now", Time.currentTimeMillis())
+                .getResultList());
     }
 
     @Override
     public boolean revokeInvitation(String id) {
-        return tenant.getInvitations().removeIf(inv -> inv.getId().equals(id));
+        TenantInvitationEntity entity = em.find(TenantInvitationEntity.class, id);
+        if (entity == null || !entity.getTenant().getId().equals(tenant.getId())) {
+            return false;
+        }
+        removeInvitation(entity);
+        return true;
     }
 
     @Override
     public void revokeInvitations(String email) {
-        tenant.getInvitations().removeIf(inv -> inv.getEmail().equals(email.toLowerCase()));
+        em.createNamedQuery("getInvitationsByTenantIdAndEmail", TenantInvitationEntity.class)
+                .setParameter("tenantId", tenant.getId())
+                .setParameter("email", email.toLowerCase())
+                .setParameter("now", Time.currentTimeMillis())
+                .getResultList()
+                .forEach(this::removeInvitation);
+    }
+
+    private void removeInvitation(TenantInvitationEntity entity) {
+        // The invitations of the tenant are not loaded just to remove one of them
+        if (Hibernate.isInitialized(tenant.getInvitations())) {
+            tenant.getInvitations().remove(entity);
+        }
+        em.remove(entity);
     }
 
     @Override
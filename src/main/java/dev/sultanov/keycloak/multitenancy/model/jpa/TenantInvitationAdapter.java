@@ -2,10 +2,11 @@ package dev.sultanov.keycloak.multitenancy.model.jpa;
 
 import dev.sultanov.keycloak.multitenancy.model.TenantInvitationModel;
 import dev.sultanov.keycloak.multitenancy.model.TenantModel;
-import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
 import dev.sultanov.keycloak.multitenancy.model.entity.TenantInvitationEntity;
 import jakarta.persistence.EntityManager;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.keycloak.common.util.Time;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
@@ -17,6 +18,7 @@ public class TenantInvitationAdapter implements TenantInvitationModel, JpaModel<
     private final TenantInvitationEntity invitation;
     private final EntityManager em;
     private final RealmModel realm;
+    private TenantModel tenant;
 
     public TenantInvitationAdapter(KeycloakSession session, RealmModel realm, EntityManager em, TenantInvitationEntity invitation) {
         this.session = session;
@@ -32,7 +34,10 @@ public class TenantInvitationAdapter implements TenantInvitationModel, JpaModel<
 
     @Override
     public TenantModel getTenant() {
-        return session.getProvider(TenantProvider.class).getTenantById(realm, invitation.getTenant().getId()).orElseThrow();
+        if (tenant == null) {
+            tenant = new TenantAdapter(session, realm, em, invitation.getTenant());
+        }
+        return tenant;
     }
 
     @Override
@@ -52,6 +57,26 @@ public class TenantInvitationAdapter implements TenantInvitationModel, JpaModel<
         return session.users().getUserById(realm, invitation.getInvitedBy());
     }
 
+    @Override
+    public Long getCreatedTimestamp() {
+        return invitation.getCreatedTimestamp();
+    }
+
+    @Override
+    public Long getExpirationTimestamp() {
+        return invitation.getExpirationTimestamp();
+    }
+
+    /**
+     * Sets the creation time of a new invitation and its expiration time according to the configured invitation lifespan.
+     */
+    static void initTimestamps(KeycloakSession session, TenantInvitationEntity invitation) {
+        long now = Time.currentTimeMillis();
+        long lifespan = JpaTenantProviderFactory.getInvitationLifespan(session);
+        invitation.setCreatedTimestamp(now);
+        invitation.setExpirationTimestamp(lifespan > 0 ? now + TimeUnit.SECONDS.toMillis(lifespan) : null);
+    }
+
     @Override
     public TenantInvitationEntity getEntity() {
         return invitation;
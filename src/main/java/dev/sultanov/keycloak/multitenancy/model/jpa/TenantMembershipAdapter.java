@@ -2,7 +2,6 @@ package dev.sultanov.keycloak.multitenancy.model.jpa;
 
 import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
 import dev.sultanov.keycloak.multitenancy.model.TenantModel;
-import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
 import dev.sultanov.keycloak.multitenancy.model.entity.TenantMembershipEntity;
 import jakarta.persistence.EntityManager;
 import java.util.Set;
@@ -17,6 +16,7 @@ public class TenantMembershipAdapter implements TenantMembershipModel, JpaModel<
     private final TenantMembershipEntity membership;
     private final EntityManager em;
     private final RealmModel realm;
+    private TenantModel tenant;
 
     public TenantMembershipAdapter(KeycloakSession session, RealmModel realm, EntityManager em, TenantMembershipEntity membership) {
         this.session = session;
@@ -32,7 +32,10 @@ public class TenantMembershipAdapter implements TenantMembershipModel, JpaModel<
 
     @Override
     public TenantModel getTenant() {
-        return session.getProvider(TenantProvider.class).getTenantById(realm, membership.getTenant().getId()).orElseThrow();
+        if (tenant == null) {
+            tenant = new TenantAdapter(session, realm, em, membership.getTenant());
+        }
+        return tenant;
     }
 
     @Override
@@ -1,7 +1,7 @@
 package dev.sultanov.keycloak.multitenancy.protocol.oidc.mappers;
 
-import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
-import dev.sultanov.keycloak.multitenancy.util.Constants;
+import dev.sultanov.keycloak.multitenancy.metrics.TenantMetrics;
+import io.micrometer.core.instrument.Timer;
 import java.util.ArrayList;
 import java.util.List;
 import org.keycloak.models.ClientSessionContext;
@@ -27,6 +27,8 @@ public class ActiveTenantMapper extends AbstractOIDCProtocolMapper implements OI
 
     public static final String PROVIDER_ID = "oidc-active-tenant-mapper";
 
+    private static final Timer TIMER = TenantMetrics.mapperTimer(PROVIDER_ID);
+
 
     public List<ProviderConfigProperty> getConfigProperties() {
         return configProperties;
@@ -55,15 +57,12 @@ public class ActiveTenantMapper extends AbstractOIDCProtocolMapper implements OI
     @Override
     protected void setClaim(IDToken token, ProtocolMapperModel mappingModel, UserSessionModel userSession, KeycloakSession keycloakSession,
             ClientSessionContext clientSessionCtx) {
-        var activeTenantId = userSession.getNote(Constants.ACTIVE_TENANT_ID_SESSION_NOTE);
-        var provider = keycloakSession.getProvider(TenantProvider.class);
-        provider.getTenantMembershipsStream(userSession.getRealm(), userSession.getUser())
-                .filter(membership -> membership.getTenant().getId().equals(activeTenantId))
+        TIMER.record(() -> TenantContext.of(keycloakSession, userSession)
+                .getActiveMembership()
                 .map(ClaimsFactory::toClaim)
-                .findFirst()
                 .ifPresent(claim -> {
                     var claimName = mappingModel.getConfig().get(OIDCAttributeMapperHelper.TOKEN_CLAIM_NAME);
                     token.getOtherClaims().put(claimName, claim);
-                });
+                }));
     }
 }
\ No newline at end of file
@@ -1,13 +1,28 @@
 package dev.sultanov.keycloak.multitenancy.protocol.oidc.mappers;
 
-import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
+import dev.sultanov.keycloak.multitenancy.metrics.TenantMetrics;
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import dev.sultanov.keycloak.multitenancy.util.Constants;
+import io.micrometer.core.instrument.Timer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.OAuth2Constants;
 import org.keycloak.models.ClientSessionContext;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.ProtocolMapperContainerModel;
 import org.keycloak.models.ProtocolMapperModel;
+import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserSessionModel;
+import org.keycloak.protocol.ProtocolMapperConfigException;
 import org.keycloak.protocol.oidc.mappers.AbstractOIDCProtocolMapper;
 import org.keycloak.protocol.oidc.mappers.OIDCAccessTokenMapper;
 import org.keycloak.protocol.oidc.mappers.OIDCAttributeMapperHelper;
@@ -16,17 +31,80 @@ import org.keycloak.protocol.oidc.mappers.UserInfoTokenMapper;
 import org.keycloak.provider.ProviderConfigProperty;
 import org.keycloak.representations.IDToken;
 
+@JBossLog
 public class AllTenantsMapper extends AbstractOIDCProtocolMapper implements OIDCAccessTokenMapper, OIDCIDTokenMapper,
         UserInfoTokenMapper {
 
     private static final List<ProviderConfigProperty> configProperties = new ArrayList<>();
 
+    public static final String PROVIDER_ID = "oidc-all-tenants-mapper";
+
+    static final String CLAIM_FORMAT = "claim.format";
+    static final String MAX_TENANTS = "max.tenants";
+    static final String ROLE_DICTIONARY = "role.dictionary";
+    static final String OVERFLOW_CLAIM_SUFFIX = "_overflow";
+    static final String ROLE_FILTER = "filter.roles";
+    static final String ATTRIBUTE_FILTER = "filter.attributes";
+    static final String SCOPE_FILTER = "filter.scope";
+
+    private static final int MAX_DICTIONARY_SIZE = Integer.SIZE - 1;
+    private static final String DEFAULT_ROLE_DICTIONARY = Constants.TENANT_ADMIN_ROLE + "," + Constants.TENANT_USER_ROLE;
+
     static {
         OIDCAttributeMapperHelper.addTokenClaimNameConfig(configProperties);
         OIDCAttributeMapperHelper.addIncludeInTokensConfig(configProperties, ActiveTenantMapper.class);
+
+        ProviderConfigProperty formatProperty = new ProviderConfigProperty();
+        formatProperty.setName(CLAIM_FORMAT);
+        formatProperty.setLabel("Claim format");
+        formatProperty.setType(ProviderConfigProperty.LIST_TYPE);
+        formatProperty.setOptions(TenantsClaimFormat.optionValues());
+        formatProperty.setDefaultValue(TenantsClaimFormat.FULL.getValue());
+        formatProperty.setHelpText("'full' maps ID, name and roles of each tenant, 'ids' maps only the tenant IDs, 'compact' maps 'id:role1,role2' strings "
+                + "and 'bitmask' maps each tenant ID to a bitmask of the roles in the role dictionary");
+        configProperties.add(formatProperty);
+
+        ProviderConfigProperty maxTenantsProperty = new ProviderConfigProperty();
+        maxTenantsProperty.setName(MAX_TENANTS);
+        maxTenantsProperty.setLabel("Maximum number of tenants");
+        maxTenantsProperty.setType(ProviderConfigProperty.STRING_TYPE);
+        maxTenantsProperty.setHelpText("Maximum number of tenants in the claim, empty or 0 for no limit. The active tenant is always included, and when tenants "
+                + "are left out, a boolean claim with the '" + OVERFLOW_CLAIM_SUFFIX + "' suffix is added to the token");
+        configProperties.add(maxTenantsProperty);
+
+        ProviderConfigProperty roleDictionaryProperty = new ProviderConfigProperty();
+        roleDictionaryProperty.setName(ROLE_DICTIONARY);
+        roleDictionaryProperty.setLabel("Role dictionary");
+        roleDictionaryProperty.setType(ProviderConfigProperty.STRING_TYPE);
+        roleDictionaryProperty.setDefaultValue(DEFAULT_ROLE_DICTIONARY);
+        roleDictionaryProperty.setHelpText("Comma-separated list of up to " + MAX_DICTIONARY_SIZE + " tenant roles used by the 'bitmask' format, where the "
+                + "first role is bit 0. Roles which are not in the dictionary are left out");
+        configProperties.add(roleDictionaryProperty);
+
+        ProviderConfigProperty roleFilterProperty = new ProviderConfigProperty();
+        roleFilterProperty.setName(ROLE_FILTER);
+        roleFilterProperty.setLabel("Role filter");
+        roleFilterProperty.setType(ProviderConfigProperty.STRING_TYPE);
+        roleFilterProperty.setHelpText("Comma-separated list of tenant roles. If set, only tenants in which the user has at least one of the roles are mapped");
+        configProperties.add(roleFilterProperty);
+
+        ProviderConfigProperty attributeFilterProperty = new ProviderConfigProperty();
+        attributeFilterProperty.setName(ATTRIBUTE_FILTER);
+        attributeFilterProperty.setLabel("Attribute filter");
+        attributeFilterProperty.setType(ProviderConfigProperty.STRING_TYPE);
+        attributeFilterProperty.setHelpText("Comma-separated list of 'name=value' pairs. If set, only tenants which have all the attribute values are mapped");
+        configProperties.add(attributeFilterProperty);
+
+        ProviderConfigProperty scopeFilterProperty = new ProviderConfigProperty();
+        scopeFilterProperty.setName(SCOPE_FILTER);
+        scopeFilterProperty.setLabel("Scope filter");
+        scopeFilterProperty.setType(ProviderConfigProperty.STRING_TYPE);
+        scopeFilterProperty.setHelpText("Name of a dynamic client scope, for example 'tenant'. If set and the client requests scopes like 'tenant:<tenant ID>', "
+                + "only the requested tenants are mapped");
+        configProperties.add(scopeFilterProperty);
     }
 
-    public static final String PROVIDER_ID = "oidc-all-tenants-mapper";
+    private static final Timer TIMER = TenantMetrics.mapperTimer(PROVIDER_ID);
 
 
     public List<ProviderConfigProperty> getConfigProperties() {
@@ -53,16 +131,164 @@ public class AllTenantsMapper extends AbstractOIDCProtocolMapper implements OIDC
         return "Maps all tenants that the user is a member of to a token claim";
     }
 
+    @Override
+    public void validateConfig(KeycloakSession session, RealmModel realm, ProtocolMapperContainerModel client, ProtocolMapperModel mapperModel)
+            throws ProtocolMapperConfigException {
+        var config = mapperModel.getConfig();
+        var format = config.get(CLAIM_FORMAT);
+        if (format != null && !format.isBlank() && TenantsClaimFormat.of(format).isEmpty()) {
+            throw new ProtocolMapperConfigException("Unknown claim format: " + format);
+        }
+        try {
+            if (parseMaxTenants(config) < 0) {
+                throw new ProtocolMapperConfigException("Maximum number of tenants must not be negative");
+            }
+        } catch (NumberFormatException e) {
+            throw new ProtocolMapperConfigException("Maximum number of tenants must be a number", e);
+        }
+        if (getRoleDictionary(config).size() > MAX_DICTIONARY_SIZE) {
+            throw new ProtocolMapperConfigException("Role dictionary must not contain more than " + MAX_DICTIONARY_SIZE + " roles");
+        }
+        var invalidAttribute = parseList(config.get(ATTRIBUTE_FILTER)).stream()
+                .filter(attribute -> attribute.indexOf('=') < 1)
+                .findFirst();
+        if (invalidAttribute.isPresent()) {
+            throw new ProtocolMapperConfigException("Attribute filter must consist of 'name=value' pairs: " + invalidAttribute.get());
+        }
+    }
+
     @Override
     protected void setClaim(IDToken token, ProtocolMapperModel mappingModel, UserSessionModel userSession, KeycloakSession keycloakSession,
             ClientSessionContext clientSessionCtx) {
-        var provider = keycloakSession.getProvider(TenantProvider.class);
-        var claim = provider.getTenantMembershipsStream(userSession.getRealm(), userSession.getUser())
-                .map(ClaimsFactory::toClaim)
-                .collect(Collectors.toList());
-        if (!claim.isEmpty()) {
-            var claimName = mappingModel.getConfig().get(OIDCAttributeMapperHelper.TOKEN_CLAIM_NAME);
-            token.getOtherClaims().put(claimName, claim);
+        TIMER.record(() -> mapClaim(token, mappingModel, userSession, keycloakSession, clientSessionCtx));
+    }
+
+    private void mapClaim(IDToken token, ProtocolMapperModel mappingModel, UserSessionModel userSession, KeycloakSession keycloakSession,
+            ClientSessionContext clientSessionCtx) {
+        var config = mappingModel.getConfig();
+        var context = TenantContext.of(keycloakSession, userSession);
+        var roles = Set.copyOf(parseList(config.get(ROLE_FILTER)));
+        var attributes = getAttributeFilter(config);
+        var tenantIds = getRequestedTenantIds(config, clientSessionCtx);
+        boolean filtered = !roles.isEmpty() || !attributes.isEmpty() || tenantIds != null;
+        int maxTenants = getMaxTenants(config);
+        var activeTenantId = context.getActiveTenantId().orElse(null);
+
+        List<TenantMembershipModel> memberships;
+        boolean overflow;
+        if (maxTenants > 0 && roles.isEmpty() && attributes.isEmpty()) {
+            // Loads only the tenants that can make it into the claim, which are the active tenant and the tenants with the lowest IDs
+            var memberTenantIds = context.getTenantIds(tenantIds, maxTenants + 1);
+            overflow = memberTenantIds.size() > maxTenants;
+            if (overflow) {
+                var selectedTenantIds = new LinkedHashSet<>(memberTenantIds.subList(0, maxTenants));
+                if (activeTenantId != null && (tenantIds == null || tenantIds.contains(activeTenantId))) {
+                    selectedTenantIds.add(activeTenantId);
+                }
+                memberships = context.getMemberships(roles, attributes, selectedTenantIds);
+            } else {
+                memberships = filtered ? context.getMemberships(roles, attributes, tenantIds) : context.getMemberships();
+            }
+        } else {
+            // The role and attribute filters are applied by the query, and the limit to the tenants that pass them
+            memberships = filtered ? context.getMemberships(roles, attributes, tenantIds) : context.getMemberships();
+            overflow = maxTenants > 0 && memberships.size() > maxTenants;
+        }
+        if (memberships.isEmpty()) {
+            return;
+        }
+
+        var format = TenantsClaimFormat.of(config.get(CLAIM_FORMAT)).orElse(TenantsClaimFormat.FULL);
+
+        Object claim;
+        if (overflow) {
+            claim = format.encode(truncate(memberships, activeTenantId, maxTenants), getRoleDictionary(config));
+        } else if (format == TenantsClaimFormat.FULL && !filtered) {
+            // Shared by the access token, ID token and userinfo of the request
+            claim = context.getClaims();
+        } else {
+            claim = format.encode(memberships, getRoleDictionary(config));
+        }
+
+        var claimName = config.get(OIDCAttributeMapperHelper.TOKEN_CLAIM_NAME);
+        token.getOtherClaims().put(claimName, claim);
+        if (overflow) {
+            token.getOtherClaims().put(claimName + OVERFLOW_CLAIM_SUFFIX, true);
+        }
+    }
+
+    /**
+     * Keeps the active tenant and then the tenants with the lowest IDs, so that the same tenants are mapped on every token refresh.
+     */
+    private static List<TenantMembershipModel> truncate(List<TenantMembershipModel> memberships, String activeTenantId, int maxTenants) {
+        return memberships.stream()
+                .sorted(Comparator.comparing((TenantMembershipModel membership) -> !membership.getTenant().getId().equals(activeTenantId))
+                        .thenComparing(membership -> membership.getTenant().getId()))
+                .limit(maxTenants)
+                .toList();
+    }
+
+    /**
+     * Returns the configured maximum number of tenants, or 0 for no limit if it is not a number, so that a mapper created before the validation of its
+     * configuration does not fail the token request.
+     */
+    private static int getMaxTenants(Map<String, String> config) {
+        try {
+            return parseMaxTenants(config);
+        } catch (NumberFormatException e) {
+            log.warnf("Ignoring invalid maximum number of tenants of mapper %s: %s", PROVIDER_ID, config.get(MAX_TENANTS));
+            return 0;
+        }
+    }
+
+    private static int parseMaxTenants(Map<String, String> config) {
+        var value = config.get(MAX_TENANTS);
+        return value == null || value.isBlank() ? 0 : Integer.parseInt(value.trim());
+    }
+
+    private static List<String> getRoleDictionary(Map<String, String> config) {
+        return parseList(Objects.requireNonNullElse(config.get(ROLE_DICTIONARY), DEFAULT_ROLE_DICTIONARY));
+    }
+
+    private static Map<String, String> getAttributeFilter(Map<String, String> config) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (String attribute : parseList(config.get(ATTRIBUTE_FILTER))) {
+            int separator = attribute.indexOf('=');
+            if (separator > 0) {
+                attributes.put(attribute.substring(0, separator).trim(), attribute.substring(separator + 1).trim());
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Returns the tenant IDs of the requested scopes like {@code tenant:<id>}, or {@code null} if the scope filter is not configured or no such scope was
+     * requested. The scope parameter is read from the client session, as it is kept there for token refreshes.
+     */
+    private static Set<String> getRequestedTenantIds(Map<String, String> config, ClientSessionContext clientSessionCtx) {
+        var scopeName = config.get(SCOPE_FILTER);
+        if (scopeName == null || scopeName.isBlank() || clientSessionCtx == null) {
+            return null;
+        }
+        var scopeParam = clientSessionCtx.getClientSession().getNote(OAuth2Constants.SCOPE);
+        if (scopeParam == null) {
+            return null;
+        }
+        var prefix = scopeName.trim() + ":";
+        var tenantIds = Arrays.stream(scopeParam.split(" "))
+                .filter(scope -> scope.startsWith(prefix) && scope.length() > prefix.length())
+                .map(scope -> scope.substring(prefix.length()))
+                .collect(Collectors.toSet());
+        return tenantIds.isEmpty() ? null : tenantIds;
+    }
+
+    private static List<String> parseList(String value) {
+        if (value == null) {
+            return List.of();
         }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .toList();
     }
-}
\ No newline at end of file
+}
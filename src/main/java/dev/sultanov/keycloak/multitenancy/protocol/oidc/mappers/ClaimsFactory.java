@@ -3,6 +3,7 @@ package dev.sultanov.keycloak.multitenancy.protocol.oidc.mappers;
 import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ClaimsFactory {
@@ -12,13 +13,29 @@ public class ClaimsFactory {
     private static final String ROLES_KEY = "roles";
 
     static Map<String, Object> toClaim(TenantMembershipModel membership) {
+        var tenant = membership.getTenant();
         Map<String, Object> claim = new HashMap<>();
-        claim.put(TENANT_ID_KEY, membership.getTenant().getId());
-        claim.put(TENANT_NAME_KEY, membership.getTenant().getName());
+        claim.put(TENANT_ID_KEY, tenant.getId());
+        claim.put(TENANT_NAME_KEY, tenant.getName());
         claim.put(ROLES_KEY, membership.getRoles());
         return Collections.unmodifiableMap(claim);
     }
 
+    static String toCompactClaim(TenantMembershipModel membership) {
+        return membership.getTenant().getId() + ":" + String.join(",", membership.getRoles().stream().sorted().toList());
+    }
+
+    static int toRoleMask(TenantMembershipModel membership, List<String> roleDictionary) {
+        int mask = 0;
+        for (String role : membership.getRoles()) {
+            int index = roleDictionary.indexOf(role);
+            if (index >= 0) {
+                mask |= 1 << index;
+            }
+        }
+        return mask;
+    }
+
     private ClaimsFactory() {
         throw new AssertionError();
     }
@@ -1,9 +1,11 @@
 package dev.sultanov.keycloak.multitenancy.protocol.oidc.mappers;
 
+import dev.sultanov.keycloak.multitenancy.metrics.TenantMetrics;
 import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
 import dev.sultanov.keycloak.multitenancy.model.TenantModel;
 import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
 
+import io.micrometer.core.instrument.Timer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -39,6 +41,8 @@ public class HardcodedTenantMapper extends AbstractOIDCProtocolMapper
 
     public static final String PROVIDER_ID = "oidc-hardcoded-tenant-mapper";
 
+    private static final Timer TIMER = TenantMetrics.mapperTimer(PROVIDER_ID);
+
     public List<ProviderConfigProperty> getConfigProperties() {
         return CONFIG_PROPERTIES;
     }
@@ -67,6 +71,10 @@ public class HardcodedTenantMapper extends AbstractOIDCProtocolMapper
     protected void setClaim(IDToken token, ProtocolMapperModel mappingModel, UserSessionModel userSession,
             KeycloakSession keycloakSession,
             ClientSessionContext clientSessionCtx) {
+        TIMER.record(() -> mapClaim(token, mappingModel, userSession, keycloakSession));
+    }
+
+    private void mapClaim(IDToken token, ProtocolMapperModel mappingModel, UserSessionModel userSession, KeycloakSession keycloakSession) {
         var tenantID = mappingModel.getConfig().get(TENANT_ID_PROPERTY_NAME);
         var provider = keycloakSession.getProvider(TenantProvider.class);
         var optionalTenant = provider.getTenantById(userSession.getRealm(), tenantID);
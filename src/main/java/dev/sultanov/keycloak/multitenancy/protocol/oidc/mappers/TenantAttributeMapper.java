@@ -1,6 +1,7 @@
 package dev.sultanov.keycloak.multitenancy.protocol.oidc.mappers;
 
-import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
+import dev.sultanov.keycloak.multitenancy.metrics.TenantMetrics;
+import io.micrometer.core.instrument.Timer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -15,7 +16,6 @@ import org.keycloak.protocol.oidc.mappers.OIDCIDTokenMapper;
 import org.keycloak.protocol.oidc.mappers.UserInfoTokenMapper;
 import org.keycloak.provider.ProviderConfigProperty;
 import org.keycloak.representations.IDToken;
-import dev.sultanov.keycloak.multitenancy.util.Constants;
 
 public class TenantAttributeMapper extends AbstractOIDCProtocolMapper
         implements OIDCAccessTokenMapper, OIDCIDTokenMapper, UserInfoTokenMapper {
@@ -24,6 +24,8 @@ public class TenantAttributeMapper extends AbstractOIDCProtocolMapper
     private static final String TENANT_ATTRIBUTE_NAME = "tenant.attribute.name";
     private static final String MULTIVALUED = "multivalued";
 
+    private static final Timer TIMER = TenantMetrics.mapperTimer(PROVIDER_ID);
+
     private static final List<ProviderConfigProperty> configProperties = new ArrayList<>();
 
     static {
@@ -75,12 +77,10 @@ public class TenantAttributeMapper extends AbstractOIDCProtocolMapper
     @Override
     protected void setClaim(IDToken token, ProtocolMapperModel mappingModel, UserSessionModel userSession,
             KeycloakSession keycloakSession, ClientSessionContext clientSessionCtx) {
+        TIMER.record(() -> mapClaim(token, mappingModel, userSession, keycloakSession));
+    }
 
-        String activeTenantId = userSession.getNote(Constants.ACTIVE_TENANT_ID_SESSION_NOTE);
-        if (activeTenantId == null) {
-            return;
-        }
-
+    private void mapClaim(IDToken token, ProtocolMapperModel mappingModel, UserSessionModel userSession, KeycloakSession keycloakSession) {
         String attributeName = mappingModel.getConfig().get(TENANT_ATTRIBUTE_NAME);
         if (attributeName == null) {
             return;
@@ -89,8 +89,7 @@ public class TenantAttributeMapper extends AbstractOIDCProtocolMapper
         boolean isMultivalued = Boolean.parseBoolean(mappingModel.getConfig().getOrDefault(MULTIVALUED, "true"));
         String claimName = mappingModel.getConfig().get(OIDCAttributeMapperHelper.TOKEN_CLAIM_NAME);
 
-        TenantProvider provider = keycloakSession.getProvider(TenantProvider.class);
-        var tenant = provider.getTenantById(userSession.getRealm(), activeTenantId);
+        var tenant = TenantContext.of(keycloakSession, userSession).getActiveTenant();
 
         if (tenant.isPresent()) {
             if (isMultivalued) {
@@ -0,0 +1,98 @@
+package dev.sultanov.keycloak.multitenancy.protocol.oidc.mappers;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
+import dev.sultanov.keycloak.multitenancy.util.Constants;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.UserSessionModel;
+
+/**
+ * Snapshot of the tenant memberships of a user session, shared by all tenant mappers within a request, so that issuing an access token, an ID token and a
+ * userinfo response loads the memberships only once. Across requests, the memberships are served by the tenant cache, which is invalidated whenever they
+ * change.
+ */
+class TenantContext {
+
+    private static final String SESSION_ATTRIBUTE_PREFIX = "multi-tenancy.tenant-context.";
+
+    private final KeycloakSession session;
+    private final UserSessionModel userSession;
+    private List<TenantMembershipModel> memberships;
+    private List<Map<String, Object>> claims;
+    private final Map<List<Object>, List<TenantMembershipModel>> filteredMemberships = new HashMap<>();
+    private final Map<List<Object>, List<String>> tenantIds = new HashMap<>();
+
+    private TenantContext(KeycloakSession session, UserSessionModel userSession) {
+        this.session = session;
+        this.userSession = userSession;
+    }
+
+    static TenantContext of(KeycloakSession session, UserSessionModel userSession) {
+        String attributeName = SESSION_ATTRIBUTE_PREFIX + userSession.getId();
+        TenantContext context = session.getAttribute(attributeName, TenantContext.class);
+        if (context == null) {
+            context = new TenantContext(session, userSession);
+            session.setAttribute(attributeName, context);
+        }
+        return context;
+    }
+
+    List<TenantMembershipModel> getMemberships() {
+        if (memberships == null) {
+            memberships = session.getProvider(TenantProvider.class)
+                    .getTenantMembershipsStream(userSession.getRealm(), userSession.getUser())
+                    .toList();
+        }
+        return memberships;
+    }
+
+    /**
+     * Returns the memberships that match the given filters, as defined by {@link TenantProvider#getTenantMembershipsStream(
+     * org.keycloak.models.RealmModel, org.keycloak.models.UserModel, Set, Map, Collection)}, loading them once per combination of filters.
+     */
+    List<TenantMembershipModel> getMemberships(Set<String> roles, Map<String, String> attributes, Collection<String> tenantIds) {
+        return filteredMemberships.computeIfAbsent(Arrays.asList(roles, attributes, tenantIds), key -> session.getProvider(TenantProvider.class)
+                .getTenantMembershipsStream(userSession.getRealm(), userSession.getUser(), roles, attributes, tenantIds)
+                .toList());
+    }
+
+    /**
+     * Returns the IDs of the tenants of the user, as defined by {@link TenantProvider#getTenantIdsOfMember(org.keycloak.models.RealmModel,
+     * org.keycloak.models.UserModel, Collection, int)}, without loading the memberships.
+     */
+    List<String> getTenantIds(Collection<String> tenantIds, int maxResults) {
+        return this.tenantIds.computeIfAbsent(Arrays.asList(tenantIds, maxResults), key -> session.getProvider(TenantProvider.class)
+                .getTenantIdsOfMember(userSession.getRealm(), userSession.getUser(), tenantIds, maxResults));
+    }
+
+    List<Map<String, Object>> getClaims() {
+        if (claims == null) {
+            claims = getMemberships().stream().map(ClaimsFactory::toClaim).toList();
+        }
+        return claims;
+    }
+
+    Optional<String> getActiveTenantId() {
+        return Optional.ofNullable(userSession.getNote(Constants.ACTIVE_TENANT_ID_SESSION_NOTE));
+    }
+
+    Optional<TenantMembershipModel> getActiveMembership() {
+        return getActiveTenantId().flatMap(activeTenantId -> getMemberships().stream()
+                .filter(membership -> membership.getTenant().getId().equals(activeTenantId))
+                .findFirst());
+    }
+
+    Optional<TenantModel> getActiveTenant() {
+        return getActiveMembership().map(TenantMembershipModel::getTenant)
+                .or(() -> getActiveTenantId().flatMap(activeTenantId -> session.getProvider(TenantProvider.class)
+                        .getTenantById(userSession.getRealm(), activeTenantId)));
+    }
+}
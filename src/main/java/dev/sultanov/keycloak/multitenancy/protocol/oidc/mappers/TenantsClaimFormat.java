@@ -0,0 +1,76 @@
+package dev.sultanov.keycloak.multitenancy.protocol.oidc.mappers;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Encodings of the memberships of a user in the claim of the {@link AllTenantsMapper}, from the most verbose to the most compact.
+ */
+enum TenantsClaimFormat {
+
+    /**
+     * A list of {@code {tenant_id, tenant_name, roles}} objects.
+     */
+    FULL("full") {
+        @Override
+        Object encode(List<TenantMembershipModel> memberships, List<String> roleDictionary) {
+            return memberships.stream().map(ClaimsFactory::toClaim).toList();
+        }
+    },
+
+    /**
+     * A list of tenant IDs.
+     */
+    IDS("ids") {
+        @Override
+        Object encode(List<TenantMembershipModel> memberships, List<String> roleDictionary) {
+            return memberships.stream().map(membership -> membership.getTenant().getId()).toList();
+        }
+    },
+
+    /**
+     * A list of {@code tenant_id:role1,role2} strings.
+     */
+    COMPACT("compact") {
+        @Override
+        Object encode(List<TenantMembershipModel> memberships, List<String> roleDictionary) {
+            return memberships.stream().map(ClaimsFactory::toCompactClaim).toList();
+        }
+    },
+
+    /**
+     * An object that maps tenant IDs to a bitmask of the roles, where bit {@code i} stands for the {@code i}-th role of the role dictionary.
+     */
+    BITMASK("bitmask") {
+        @Override
+        Object encode(List<TenantMembershipModel> memberships, List<String> roleDictionary) {
+            Map<String, Integer> claim = new LinkedHashMap<>();
+            memberships.forEach(membership -> claim.put(membership.getTenant().getId(), ClaimsFactory.toRoleMask(membership, roleDictionary)));
+            return claim;
+        }
+    };
+
+    private final String value;
+
+    TenantsClaimFormat(String value) {
+        this.value = value;
+    }
+
+    String getValue() {
+        return value;
+    }
+
+    abstract Object encode(List<TenantMembershipModel> memberships, List<String> roleDictionary);
+
+    static Optional<TenantsClaimFormat> of(String value) {
+        return Arrays.stream(values()).filter(format -> format.value.equals(value)).findFirst();
+    }
+
+    static List<String> optionValues() {
+        return Arrays.stream(values()).map(TenantsClaimFormat::getValue).toList();
+    }
+}
@@ -1,5 +1,6 @@
 package dev.sultanov.keycloak.multitenancy.resource;
 
+import dev.sultanov.keycloak.multitenancy.metrics.RequestTimer;
 import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
 import jakarta.persistence.EntityManager;
 import jakarta.ws.rs.NotAuthorizedException;
@@ -7,6 +8,8 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.keycloak.connections.jpa.JpaConnectionProvider;
 import org.keycloak.http.HttpRequest;
 import org.keycloak.http.HttpResponse;
@@ -20,12 +23,14 @@ import org.keycloak.representations.AccessToken;
 import org.keycloak.services.cors.Cors;
 import org.keycloak.services.managers.AppAuthManager;
 import org.keycloak.services.managers.AppAuthManager.BearerTokenAuthenticator;
-import org.keycloak.services.managers.RealmManager;
+import org.keycloak.services.managers.AuthenticationManager;
 import org.keycloak.services.resources.admin.AdminAuth;
 import org.keycloak.services.resources.admin.AdminEventBuilder;
 
 public abstract class AbstractAdminResource<T extends AdminAuth> {
 
+    private static final Map<Class<?>, Constructor<?>> AUTH_CONSTRUCTORS = new ConcurrentHashMap<>();
+
     protected KeycloakSession session;
 
     protected final RealmModel realm;
@@ -35,12 +40,17 @@ public abstract class AbstractAdminResource<T extends AdminAuth> {
     protected AdminEventBuilder adminEvent;
     protected EntityManager entityManager;
     protected TenantProvider tenantProvider;
-
+    private final RequestTimer requestTimer;
 
     public AbstractAdminResource(KeycloakSession session) {
+        this(session, null);
+    }
+
+    AbstractAdminResource(KeycloakSession session, BearerTokenCache tokenCache) {
         this.session = session;
         this.realm = session.getContext().getRealm();
-        this.setup();
+        this.requestTimer = RequestTimer.start(session, getClass());
+        this.setup(tokenCache);
     }
 
     protected AbstractAdminResource(AbstractAdminResource<T> parent) {
@@ -51,10 +61,12 @@ public abstract class AbstractAdminResource<T extends AdminAuth> {
         this.user = parent.user;
         this.entityManager = parent.entityManager;
         this.tenantProvider = parent.tenantProvider;
+        this.requestTimer = parent.requestTimer;
+        this.requestTimer.setResource(getClass());
     }
 
-    private void setup() {
-        setupAuth();
+    private void setup(BearerTokenCache tokenCache) {
+        setupAuth(tokenCache);
         setupEvents();
         setupProvider();
         setupCors();
@@ -64,18 +76,64 @@ public abstract class AbstractAdminResource<T extends AdminAuth> {
         Cors.builder()
                 .allowedOrigins(auth.getToken())
                 .allowedMethods(CorsResource.METHODS)
-                .exposedHeaders("Location")
+                .exposedHeaders("Location", "Link")
                 .auth()
                 .add();
     }
 
-    private void setupAuth() {
+    private void setupAuth(BearerTokenCache tokenCache) {
         var tokenString = AppAuthManager.extractAuthorizationHeaderToken(session.getContext().getRequestHeaders());
 
         if (tokenString == null) {
             throw new NotAuthorizedException("Bearer");
         }
 
+        if (tokenCache == null || !restoreAuth(tokenCache.get(tokenString))) {
+            authenticate(tokenString);
+            if (tokenCache != null) {
+                tokenCache.put(tokenString, auth);
+            }
+        }
+    }
+
+    /**
+     * Restores the authentication of a token that was verified by a previous request, unless its user session has since ended or its user or client has
+     * since been removed or disabled. Tokens of offline sessions are not found among the user sessions, so they are verified again.
+     */
+    private boolean restoreAuth(BearerTokenCache.Entry entry) {
+        if (entry == null) {
+            return false;
+        }
+        var realm = this.realm != null && this.realm.getId().equals(entry.getRealmId()) ? this.realm : session.realms().getRealm(entry.getRealmId());
+        if (realm == null) {
+            return false;
+        }
+        var token = entry.getToken();
+        if (token.getSessionId() != null) {
+            var userSession = session.sessions().getUserSession(realm, token.getSessionId());
+            if (userSession == null || !AuthenticationManager.isSessionValid(realm, userSession)) {
+                return false;
+            }
+        }
+        var cachedUser = session.users().getUserById(realm, entry.getUserId());
+        if (cachedUser == null || !cachedUser.isEnabled()) {
+            return false;
+        }
+        ClientModel client = null;
+        if (entry.getClientId() != null) {
+            client = realm.getClientById(entry.getClientId());
+            if (client == null || !client.isEnabled()) {
+                return false;
+            }
+        }
+
+        session.getContext().setRealm(realm);
+        user = cachedUser;
+        auth = createAuth(realm, token, user, client);
+        return true;
+    }
+
+    private void authenticate(String tokenString) {
         AccessToken token;
 
         try {
@@ -85,9 +143,9 @@ public abstract class AbstractAdminResource<T extends AdminAuth> {
             throw new NotAuthorizedException("Bearer token format error");
         }
 
+        // Usually the realm of the request, but tokens of other realms are accepted as well
         var realmName = token.getIssuer().substring(token.getIssuer().lastIndexOf('/') + 1);
-        var realmManager = new RealmManager(session);
-        var realm = realmManager.getRealmByName(realmName);
+        var realm = this.realm != null && this.realm.getName().equals(realmName) ? this.realm : session.realms().getRealmByName(realmName);
 
         if (realm == null) {
             throw new NotAuthorizedException("Unknown realm in token");
@@ -105,12 +163,23 @@ public abstract class AbstractAdminResource<T extends AdminAuth> {
         }
 
         user = authResult.getUser();
+        auth = createAuth(realm, authResult.getToken(), user, authResult.getClient());
+    }
+
+    @SuppressWarnings("unchecked")
+    private T createAuth(RealmModel realm, AccessToken token, UserModel user, ClientModel client) {
+        var constructor = (Constructor<T>) AUTH_CONSTRUCTORS.computeIfAbsent(getClass(), type -> findAuthConstructor());
+        try {
+            return constructor.newInstance(session, realm, token, user, client);
+        } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
+    private Constructor<T> findAuthConstructor() {
         try {
-            Class<T> clazz = findSupportedType();
-            Constructor<T> constructor = clazz.getConstructor(RealmModel.class, AccessToken.class, UserModel.class, ClientModel.class);
-            auth = constructor.newInstance(realm, token, user, authResult.getClient());
-        } catch (NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
+            return findSupportedType().getConstructor(KeycloakSession.class, RealmModel.class, AccessToken.class, UserModel.class, ClientModel.class);
+        } catch (NoSuchMethodException e) {
             throw new RuntimeException(e);
         }
     }
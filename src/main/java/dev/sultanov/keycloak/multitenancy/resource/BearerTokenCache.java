@@ -0,0 +1,83 @@
+package dev.sultanov.keycloak.multitenancy.resource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.infinispan.Cache;
+import org.keycloak.common.util.Time;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.services.resources.admin.AdminAuth;
+
+/**
+ * Node-local cache of verified bearer tokens, so that repeated requests with the same token skip parsing and verifying the signature. The user session,
+ * user and client of a cached token are still checked on every request. Entries expire after a short lifespan, or with the token if it expires earlier,
+ * and are keyed by a hash of the token, so that the cache does not hold usable tokens.
+ */
+class BearerTokenCache {
+
+    private final Cache<String, Entry> cache;
+    private final long lifespan;
+
+    BearerTokenCache(Cache<String, Entry> cache, long lifespan) {
+        this.cache = cache;
+        this.lifespan = lifespan;
+    }
+
+    Entry get(String tokenString) {
+        return cache.get(key(tokenString));
+    }
+
+    void put(String tokenString, AdminAuth auth) {
+        AccessToken token = auth.getToken();
+        long entryLifespan = token.getExp() != null ? Math.min(lifespan, token.getExp() - Time.currentTime()) : lifespan;
+        if (entryLifespan > 0) {
+            String clientId = auth.getClient() != null ? auth.getClient().getId() : null;
+            cache.put(key(tokenString), new Entry(auth.getRealm().getId(), auth.getUser().getId(), clientId, token), entryLifespan, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String key(String tokenString) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(tokenString.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The access token is shared by all requests that restore an entry, so it is never modified after it has been verified.
+     */
+    static final class Entry {
+
+        private final String realmId;
+        private final String userId;
+        private final String clientId;
+        private final AccessToken token;
+
+        private Entry(String realmId, String userId, String clientId, AccessToken token) {
+            this.realmId = realmId;
+            this.userId = userId;
+            this.clientId = clientId;
+            this.token = token;
+        }
+
+        String getRealmId() {
+            return realmId;
+        }
+
+        String getUserId() {
+            return userId;
+        }
+
+        String getClientId() {
+            return clientId;
+        }
+
+        AccessToken getToken() {
+            return token;
+        }
+    }
+}
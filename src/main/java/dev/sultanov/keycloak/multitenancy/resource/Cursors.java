@@ -0,0 +1,57 @@
+package dev.sultanov.keycloak.multitenancy.resource;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Opaque cursors for keyset pagination. A cursor encodes the sort key of the last element of a page, and the URI of the next page is returned in a
+ * {@code Link} header with {@code rel="next"}.
+ */
+final class Cursors {
+
+    static final String AFTER_PARAM = "after";
+
+    private Cursors() {
+        throw new AssertionError();
+    }
+
+    static String encode(String... parts) {
+        return String.join(".", Arrays.stream(parts)
+                .map(part -> Base64.getUrlEncoder().withoutPadding().encodeToString(part.getBytes(StandardCharsets.UTF_8)))
+                .toList());
+    }
+
+    static List<String> decode(String cursor, int size) {
+        try {
+            var parts = Arrays.stream(cursor.split("\\.", -1))
+                    .map(part -> new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8))
+                    .toList();
+            if (parts.size() != size) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Returns whether the page is full, in which case there may be a next page. Empty pages, including those of requests with a maximum size of 0, never are.
+     */
+    static boolean isFullPage(List<?> page, int maxResults) {
+        return maxResults > 0 && !page.isEmpty() && page.size() == maxResults;
+    }
+
+    static void addNextLink(KeycloakSession session, String cursor) {
+        var next = session.getContext().getUri().getRequestUriBuilder()
+                .replaceQueryParam("first")
+                .replaceQueryParam(AFTER_PARAM, cursor)
+                .build();
+        session.getContext().getHttpResponse().setHeader(HttpHeaders.LINK, String.format("<%s>; rel=\"next\"", next));
+    }
+}
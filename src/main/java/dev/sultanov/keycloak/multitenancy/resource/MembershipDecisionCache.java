@@ -0,0 +1,52 @@
+package dev.sultanov.keycloak.multitenancy.resource;
+
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantMembershipCheckRepresentation;
+import java.util.Set;
+import org.infinispan.Cache;
+
+/**
+ * Node-local cache of the results of membership checks by realm, tenant and user. Entries are not invalidated when memberships change, but expire after a
+ * short lifespan, which bounds how long a revoked membership or role is still reported.
+ */
+class MembershipDecisionCache {
+
+    private final Cache<String, Decision> cache;
+
+    MembershipDecisionCache(Cache<String, Decision> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Completes the check with the cached result, if there is one.
+     *
+     * @return whether the check was completed
+     */
+    boolean complete(String realmId, TenantMembershipCheckRepresentation check) {
+        Decision decision = cache.get(key(realmId, check));
+        if (decision == null) {
+            return false;
+        }
+        check.setMember(decision.member);
+        check.setRoles(decision.roles);
+        return true;
+    }
+
+    void put(String realmId, TenantMembershipCheckRepresentation check) {
+        cache.put(key(realmId, check), new Decision(check.getMember(), Set.copyOf(check.getRoles())));
+    }
+
+    private static String key(String realmId, TenantMembershipCheckRepresentation check) {
+        return realmId + "." + check.getTenantId() + "." + check.getUserId();
+    }
+
+    static final class Decision {
+
+        private final boolean member;
+        private final Set<String> roles;
+
+        private Decision(boolean member, Set<String> roles) {
+            this.member = member;
+            this.roles = roles;
+        }
+    }
+}
@@ -32,6 +32,8 @@ public class ModelMapper {
         representation.setEmail(invitation.getEmail());
         representation.setRoles(invitation.getRoles());
         representation.setInvitedBy(invitation.getInvitedBy().getId());
+        representation.setCreatedTimestamp(invitation.getCreatedTimestamp());
+        representation.setExpirationTimestamp(invitation.getExpirationTimestamp());
         return representation;
     }
 
@@ -1,29 +1,56 @@
 package dev.sultanov.keycloak.multitenancy.resource;
 
 import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
 import dev.sultanov.keycloak.multitenancy.util.Constants;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import org.keycloak.models.ClientModel;
+import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.representations.AccessToken;
 import org.keycloak.services.resources.admin.AdminAuth;
 
+/**
+ * Permissions of the caller of the tenants API. An instance lives for one request, so the manager role and the roles of the caller in each checked tenant
+ * are looked up once and repeated checks of the request are answered from them.
+ */
 public class TenantAdminAuth extends AdminAuth {
 
-    public TenantAdminAuth(RealmModel realm, AccessToken token, UserModel user, ClientModel client) {
+    private final KeycloakSession session;
+    private Boolean tenantsManager;
+    private final Map<String, Optional<Set<String>>> rolesByTenantId = new HashMap<>();
+
+    public TenantAdminAuth(KeycloakSession session, RealmModel realm, AccessToken token, UserModel user, ClientModel client) {
         super(realm, token, user, client);
+        this.session = session;
     }
 
     boolean isTenantAdmin(TenantModel tenantModel) {
-        return tenantModel.getMembershipByUser(getUser()).filter(membership -> membership.getRoles().contains(Constants.TENANT_ADMIN_ROLE)).isPresent();
+        return getRoles(tenantModel).filter(roles -> roles.contains(Constants.TENANT_ADMIN_ROLE)).isPresent();
     }
 
     boolean isTenantMember(TenantModel tenantModel) {
-        return tenantModel.getMembershipByUser(getUser()).isPresent();
+        return getRoles(tenantModel).isPresent();
     }
 
     boolean isTenantsManager() {
-        return hasAppRole(getRealmManagementClient(), Constants.TENANTS_MANAGEMENT_ROLE);
+        if (tenantsManager == null) {
+            tenantsManager = hasAppRole(getRealmManagementClient(), Constants.TENANTS_MANAGEMENT_ROLE);
+        }
+        return tenantsManager;
+    }
+
+    private Optional<Set<String>> getRoles(TenantModel tenantModel) {
+        // Only the roles of the checked tenant are loaded, with the cached provider usually from the cached memberships of the caller
+        return rolesByTenantId.computeIfAbsent(tenantModel.getId(), tenantId -> {
+            var userId = getUser().getId();
+            var memberRoles = session.getProvider(TenantProvider.class).getMemberRoles(getRealm(), Set.of(tenantId), Set.of(userId));
+            return Optional.ofNullable(memberRoles.getOrDefault(tenantId, Map.of()).get(userId));
+        });
     }
 
     private ClientModel getRealmManagementClient() {
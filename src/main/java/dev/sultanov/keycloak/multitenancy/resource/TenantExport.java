@@ -0,0 +1,207 @@
+package dev.sultanov.keycloak.multitenancy.resource;
+
+import dev.sultanov.keycloak.multitenancy.model.entity.TenantAttributeEntity;
+import dev.sultanov.keycloak.multitenancy.model.entity.TenantEntity;
+import dev.sultanov.keycloak.multitenancy.model.entity.TenantInvitationEntity;
+import dev.sultanov.keycloak.multitenancy.model.entity.TenantMembershipEntity;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantExportRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantInvitationRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantMembershipRepresentation;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.jbosslog.JBossLog;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.keycloak.util.JsonSerialization;
+
+/**
+ * Writes all tenants of a realm as newline-delimited JSON. Tenants are read through a forward-only cursor and processed in batches: the optional
+ * attributes, memberships and invitations are loaded with one query per batch, and the persistence context is cleared after each batch, so that memory
+ * use does not depend on the number of tenants.
+ */
+@JBossLog
+class TenantExport implements StreamingOutput {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final int BATCH_SIZE = 100;
+
+    enum Include {
+        ATTRIBUTES, MEMBERSHIPS, INVITATIONS;
+
+        static Set<Include> parse(Collection<String> values) {
+            Set<Include> includes = EnumSet.noneOf(Include.class);
+            for (String value : values) {
+                for (String name : value.split(",")) {
+                    if (name.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        includes.add(Include.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                    } catch (IllegalArgumentException e) {
+                        throw new BadRequestException("Unknown include: " + name.trim());
+                    }
+                }
+            }
+            return includes;
+        }
+    }
+
+    private final KeycloakSessionFactory sessionFactory;
+    private final String realmId;
+    private final String realmName;
+    private final Set<Include> includes;
+
+    TenantExport(KeycloakSessionFactory sessionFactory, String realmId, String realmName, Set<Include> includes) {
+        this.sessionFactory = sessionFactory;
+        this.realmId = realmId;
+        this.realmName = realmName;
+        this.includes = includes;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        // The response body is written after the resource method has returned, so the export runs in its own session
+        try {
+            KeycloakModelUtils.runJobInTransaction(sessionFactory, session -> {
+                EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
+                try {
+                    export(em, output);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void export(EntityManager em, OutputStream output) throws IOException {
+        var query = em.createNamedQuery("getTenantsByRealmIdOrderByName", TenantEntity.class)
+                .setParameter("realmId", realmId)
+                .unwrap(Query.class)
+                .setFetchSize(BATCH_SIZE)
+                .setReadOnly(true);
+
+        int count = 0;
+        try (ScrollableResults<?> results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            List<TenantEntity> batch = new ArrayList<>(BATCH_SIZE);
+            while (results.next()) {
+                batch.add((TenantEntity) results.get());
+                if (batch.size() == BATCH_SIZE) {
+                    count += writeBatch(em, batch, output);
+                    batch.clear();
+                }
+            }
+            count += writeBatch(em, batch, output);
+        }
+        log.debugf("Exported %d tenants of realm %s", count, realmName);
+    }
+
+    private int writeBatch(EntityManager em, List<TenantEntity> batch, OutputStream output) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<String> tenantIds = batch.stream().map(TenantEntity::getId).toList();
+        Map<String, Map<String, List<String>>> attributes = includes.contains(Include.ATTRIBUTES) ? loadAttributes(em, tenantIds) : null;
+        Map<String, List<TenantMembershipRepresentation>> memberships = includes.contains(Include.MEMBERSHIPS) ? loadMemberships(em, tenantIds) : null;
+        Map<String, List<TenantInvitationRepresentation>> invitations = includes.contains(Include.INVITATIONS) ? loadInvitations(em, tenantIds) : null;
+
+        for (TenantEntity tenant : batch) {
+            TenantExportRepresentation representation = new TenantExportRepresentation();
+            representation.setId(tenant.getId());
+            representation.setName(tenant.getName());
+            representation.setRealm(realmName);
+            if (attributes != null) {
+                representation.setAttributes(attributes.getOrDefault(tenant.getId(), Map.of()));
+            }
+            if (memberships != null) {
+                representation.setMemberships(memberships.getOrDefault(tenant.getId(), List.of()));
+            }
+            if (invitations != null) {
+                representation.setInvitations(invitations.getOrDefault(tenant.getId(), List.of()));
+            }
+            output.write(JsonSerialization.writeValueAsBytes(representation));
+            output.write('\n');
+        }
+        output.flush();
+        em.clear();
+        return batch.size();
+    }
+
+    private static Map<String, Map<String, List<String>>> loadAttributes(EntityManager em, List<String> tenantIds) {
+        Map<String, Map<String, List<String>>> result = new HashMap<>();
+        em.createNamedQuery("getTenantAttributesByTenantIds", TenantAttributeEntity.class)
+                .setParameter("tenantIds", tenantIds)
+                .getResultStream()
+                .forEach(attribute -> result.computeIfAbsent(attribute.getTenant().getId(), id -> new HashMap<>())
+                        .computeIfAbsent(attribute.getName(), name -> new ArrayList<>())
+                        .add(attribute.getValue()));
+        return result;
+    }
+
+    private static Map<String, List<TenantMembershipRepresentation>> loadMemberships(EntityManager em, List<String> tenantIds) {
+        Map<String, List<TenantMembershipRepresentation>> result = new HashMap<>();
+        em.createNamedQuery("getMembershipsByTenantIds", TenantMembershipEntity.class)
+                .setParameter("tenantIds", tenantIds)
+                .getResultList()
+                .forEach(membership -> {
+                    TenantMembershipRepresentation representation = new TenantMembershipRepresentation();
+                    representation.setId(membership.getId());
+                    representation.setUser(toBriefRepresentation(membership.getUser()));
+                    representation.setRoles(new HashSet<>(membership.getRoles()));
+                    result.computeIfAbsent(membership.getTenant().getId(), id -> new ArrayList<>()).add(representation);
+                });
+        return result;
+    }
+
+    private static Map<String, List<TenantInvitationRepresentation>> loadInvitations(EntityManager em, List<String> tenantIds) {
+        Map<String, List<TenantInvitationRepresentation>> result = new HashMap<>();
+        em.createNamedQuery("getInvitationsByTenantIds", TenantInvitationEntity.class)
+                .setParameter("tenantIds", tenantIds)
+                .getResultList()
+                .forEach(invitation -> {
+                    TenantInvitationRepresentation representation = new TenantInvitationRepresentation();
+                    representation.setId(invitation.getId());
+                    representation.setTenantId(invitation.getTenant().getId());
+                    representation.setEmail(invitation.getEmail());
+                    representation.setRoles(new HashSet<>(invitation.getRoles()));
+                    representation.setInvitedBy(invitation.getInvitedBy());
+                    result.computeIfAbsent(invitation.getTenant().getId(), id -> new ArrayList<>()).add(representation);
+                });
+        return result;
+    }
+
+    private static UserRepresentation toBriefRepresentation(UserEntity user) {
+        UserRepresentation representation = new UserRepresentation();
+        representation.setId(user.getId());
+        representation.setCreatedTimestamp(user.getCreatedTimestamp());
+        representation.setUsername(user.getUsername());
+        representation.setEnabled(user.isEnabled());
+        representation.setFirstName(user.getFirstName());
+        representation.setLastName(user.getLastName());
+        representation.setEmail(user.getEmail());
+        representation.setEmailVerified(user.isEmailVerified());
+        representation.setFederationLink(user.getFederationLink());
+        return representation;
+    }
+}
@@ -0,0 +1,175 @@
+package dev.sultanov.keycloak.multitenancy.resource;
+
+import dev.sultanov.keycloak.multitenancy.model.TenantImport;
+import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import dev.sultanov.keycloak.multitenancy.model.TenantProvider;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantExportRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantImportResultRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantImportResultRepresentation.Status;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantInvitationRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantMembershipRepresentation;
+import jakarta.ws.rs.BadRequestException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.keycloak.util.JsonSerialization;
+
+/**
+ * Creates tenants from newline-delimited JSON documents in the format of the tenant export. Documents are validated one by one and created in chunks,
+ * each in its own transaction, so that a failing chunk does not roll back the tenants created before it and the persistence context stays small.
+ */
+@JBossLog
+class TenantImporter {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final KeycloakSession session;
+    private final RealmModel realm;
+    private final UserModel inviter;
+    private final Map<String, Optional<UserModel>> users = new HashMap<>();
+
+    TenantImporter(KeycloakSession session, RealmModel realm, UserModel inviter) {
+        this.session = session;
+        this.realm = realm;
+        this.inviter = inviter;
+    }
+
+    List<TenantImportResultRepresentation> importTenants(InputStream input) throws IOException {
+        List<TenantImportResultRepresentation> results = new ArrayList<>();
+        List<TenantImportResultRepresentation> pendingResults = new ArrayList<>();
+        List<TenantImport> pendingTenants = new ArrayList<>();
+
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            TenantImportResultRepresentation result = new TenantImportResultRepresentation();
+            result.setLine(lineNumber);
+            results.add(result);
+            try {
+                var document = JsonSerialization.readValue(line, TenantExportRepresentation.class);
+                result.setName(document.getName());
+                pendingTenants.add(toImport(document));
+                pendingResults.add(result);
+            } catch (IOException e) {
+                invalid(result, "Malformed tenant document");
+            } catch (BadRequestException e) {
+                invalid(result, e.getMessage());
+            }
+
+            if (pendingTenants.size() == CHUNK_SIZE) {
+                importChunk(pendingTenants, pendingResults);
+                pendingTenants.clear();
+                pendingResults.clear();
+            }
+        }
+        importChunk(pendingTenants, pendingResults);
+
+        log.debugf("Imported %d tenants into realm %s", results.stream().filter(result -> result.getStatus() == Status.CREATED).count(), realm.getName());
+        return results;
+    }
+
+    private TenantImport toImport(TenantExportRepresentation document) {
+        if (document.getName() == null || document.getName().isBlank()) {
+            throw new BadRequestException("Tenant name cannot be null or empty");
+        }
+        TenantsResource.validateAttributes(document.getAttributes());
+
+        Map<String, Set<String>> memberships = new LinkedHashMap<>();
+        for (TenantMembershipRepresentation membership : Optional.ofNullable(document.getMemberships()).orElse(List.of())) {
+            UserModel user = findUser(membership.getUser())
+                    .orElseThrow(() -> new BadRequestException("User not found: " + describe(membership.getUser())));
+            memberships.put(user.getId(), Optional.ofNullable(membership.getRoles()).map(Set::copyOf).orElse(Set.of()));
+        }
+
+        Map<String, Set<String>> invitations = new LinkedHashMap<>();
+        for (TenantInvitationRepresentation invitation : Optional.ofNullable(document.getInvitations()).orElse(List.of())) {
+            if (!TenantInvitationsResource.isValidEmail(invitation.getEmail())) {
+                throw new BadRequestException("Invalid email: " + invitation.getEmail());
+            }
+            invitations.put(invitation.getEmail().toLowerCase(), Optional.ofNullable(invitation.getRoles()).map(Set::copyOf).orElse(Set.of()));
+        }
+
+        return new TenantImport(document.getName(), Optional.ofNullable(document.getAttributes()).orElse(Map.of()), memberships, invitations);
+    }
+
+    private Optional<UserModel> findUser(UserRepresentation user) {
+        if (user == null) {
+            return Optional.empty();
+        }
+        if (user.getId() != null) {
+            return users.computeIfAbsent("id:" + user.getId(), key -> Optional.ofNullable(session.users().getUserById(realm, user.getId())));
+        }
+        if (user.getUsername() != null) {
+            return users.computeIfAbsent("username:" + user.getUsername(),
+                    key -> Optional.ofNullable(session.users().getUserByUsername(realm, user.getUsername())));
+        }
+        if (user.getEmail() != null) {
+            return users.computeIfAbsent("email:" + user.getEmail(), key -> Optional.ofNullable(session.users().getUserByEmail(realm, user.getEmail())));
+        }
+        return Optional.empty();
+    }
+
+    private static String describe(UserRepresentation user) {
+        if (user == null) {
+            return null;
+        }
+        return Optional.ofNullable(user.getId()).or(() -> Optional.ofNullable(user.getUsername())).orElse(user.getEmail());
+    }
+
+    private void importChunk(List<TenantImport> tenants, List<TenantImportResultRepresentation> results) {
+        if (tenants.isEmpty()) {
+            return;
+        }
+        try {
+            KeycloakModelUtils.runJobInTransaction(session.getKeycloakSessionFactory(), chunkSession -> {
+                RealmModel chunkRealm = chunkSession.realms().getRealm(realm.getId());
+                chunkSession.getContext().setRealm(chunkRealm);
+                UserModel chunkInviter = chunkSession.users().getUserById(chunkRealm, inviter.getId());
+
+                List<Optional<TenantModel>> created = chunkSession.getProvider(TenantProvider.class).importTenants(chunkRealm, tenants, chunkInviter);
+                for (int i = 0; i < created.size(); i++) {
+                    var result = results.get(i);
+                    created.get(i).ifPresentOrElse(tenant -> {
+                        result.setId(tenant.getId());
+                        result.setStatus(Status.CREATED);
+                    }, () -> {
+                        result.setStatus(Status.CONFLICT);
+                        result.setError(String.format("Tenant with name '%s' already exists in this realm", result.getName()));
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warnf(e, "Failed to import %d tenants into realm %s", tenants.size(), realm.getName());
+            results.forEach(result -> {
+                result.setId(null);
+                result.setStatus(Status.FAILED);
+                result.setError("Failed to import tenant");
+            });
+        }
+    }
+
+    private static void invalid(TenantImportResultRepresentation result, String error) {
+        result.setStatus(Status.INVALID);
+        result.setError(error);
+    }
+}
@@ -6,6 +6,9 @@ import dev.sultanov.keycloak.multitenancy.email.EmailRecipient;
 import dev.sultanov.keycloak.multitenancy.email.EmailSender;
 import dev.sultanov.keycloak.multitenancy.model.TenantInvitationModel;
 import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantBulkInvitationRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantBulkInvitationResultRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantBulkInvitationResultRepresentation.Status;
 import dev.sultanov.keycloak.multitenancy.resource.representation.TenantInvitationRepresentation;
 import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
@@ -24,7 +27,13 @@ import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
@@ -41,6 +50,8 @@ import org.keycloak.models.utils.KeycloakModelUtils;
 
 public class TenantInvitationsResource extends AbstractAdminResource<TenantAdminAuth> {
 
+    private static final int MAX_BULK_INVITATIONS = 1000;
+
     private final TenantModel tenant;
 
     public TenantInvitationsResource(AbstractAdminResource<TenantAdminAuth> parent, TenantModel tenant) {
@@ -64,7 +75,7 @@ public class TenantInvitationsResource extends AbstractAdminResource<TenantAdmin
         }
         email = email.toLowerCase();
 
-        if (tenant.getInvitationsByEmail(email).findAny().isPresent()) {
+        if (tenant.hasInvitation(email)) {
             throw new ClientErrorException(String.format("Invitation for %s already exists.", email), Response.Status.CONFLICT);
         }
 
@@ -94,6 +105,74 @@ public class TenantInvitationsResource extends AbstractAdminResource<TenantAdmin
         }
     }
 
+    @POST
+    @Path("bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "createInvitations", summary = "Create invitations for multiple emails",
+            description = "Emails which already have an invitation or belong to members of the tenant are skipped. Invitation emails are sent in the "
+                    + "locale of the request.")
+    @APIResponses({
+            @APIResponse(responseCode = "200", description = "OK - Result for each email of the request",
+                    content = @Content(schema = @Schema(type = SchemaType.ARRAY, implementation = TenantBulkInvitationResultRepresentation.class))),
+            @APIResponse(responseCode = "400", description = "Bad Request - Too many emails"),
+            @APIResponse(responseCode = "401", description = "Unauthorized"),
+            @APIResponse(responseCode = "403", description = "Forbidden")
+    })
+    public List<TenantBulkInvitationResultRepresentation> createInvitations(@RequestBody(required = true) TenantBulkInvitationRepresentation request) {
+        List<String> emails = Optional.ofNullable(request.getEmails()).orElse(List.of());
+        if (emails.size() > MAX_BULK_INVITATIONS) {
+            throw new BadRequestException(String.format("At most %d emails can be invited at once", MAX_BULK_INVITATIONS));
+        }
+
+        List<TenantBulkInvitationResultRepresentation> results = new ArrayList<>(emails.size());
+        Set<String> validEmails = new LinkedHashSet<>();
+        for (String email : emails) {
+            var result = new TenantBulkInvitationResultRepresentation();
+            if (isValidEmail(email)) {
+                result.setEmail(email.toLowerCase());
+                validEmails.add(result.getEmail());
+            } else {
+                result.setEmail(email);
+                result.setStatus(Status.INVALID);
+            }
+            results.add(result);
+        }
+
+        Set<String> invited = tenant.getInvitedEmails(validEmails);
+        Set<String> members = tenant.getMemberEmails(validEmails);
+        List<String> newEmails = validEmails.stream().filter(email -> !invited.contains(email) && !members.contains(email)).toList();
+        Set<String> roles = Optional.ofNullable(request.getRoles()).orElse(Set.of());
+
+        Map<String, String> invitationIds = new HashMap<>();
+        session.setAttribute(USER_REQUEST_LOCALE, request.getLocale());
+        for (TenantInvitationModel invitation : tenant.addInvitations(newEmails, auth.getUser(), roles)) {
+            invitationIds.put(invitation.getEmail(), invitation.getId());
+            EmailSender.sendInvitationEmail(session, new EmailRecipient(invitation.getEmail()), tenant.getName());
+        }
+
+        // An email listed more than once gets the result of its first occurrence
+        for (var result : results) {
+            if (result.getStatus() != null) {
+                continue;
+            }
+            if (invited.contains(result.getEmail())) {
+                result.setStatus(Status.ALREADY_INVITED);
+            } else if (members.contains(result.getEmail())) {
+                result.setStatus(Status.ALREADY_MEMBER);
+            } else {
+                result.setId(invitationIds.get(result.getEmail()));
+                result.setStatus(Status.CREATED);
+            }
+        }
+
+        adminEvent.operation(OperationType.CREATE)
+                .resourcePath(session.getContext().getUri())
+                .success();
+
+        return results;
+    }
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(operationId = "listInvitations", summary = "List invitations")
@@ -105,16 +184,26 @@ public class TenantInvitationsResource extends AbstractAdminResource<TenantAdmin
     public Stream<TenantInvitationRepresentation> listInvitations(
             @Parameter(description = "Invitee email") @QueryParam("search") String searchQuery,
             @Parameter(description = "Pagination offset") @QueryParam("first") Integer firstResult,
-            @Parameter(description = "Maximum results size (defaults to 100)") @QueryParam("max") Integer maxResults) {
-        Optional<String> search = Optional.ofNullable(searchQuery);
+            @Parameter(description = "Maximum results size (defaults to 100)") @QueryParam("max") Integer maxResults,
+            @Parameter(description = "Pagination cursor from the next link of the previous page, takes precedence over the offset")
+            @QueryParam(Cursors.AFTER_PARAM) String after) {
         firstResult = firstResult != null ? firstResult : 0;
         maxResults = maxResults != null ? maxResults : Constants.DEFAULT_MAX_RESULTS;
 
-        return tenant.getInvitationsStream()
-                .filter(i -> search.isEmpty() || i.getEmail().contains(search.get()))
-                .skip(firstResult)
-                .limit(maxResults)
-                .map(ModelMapper::toRepresentation);
+        List<TenantInvitationModel> invitations;
+        if (after != null) {
+            invitations = tenant.getInvitationsStreamAfter(searchQuery, Cursors.decode(after, 1).get(0), maxResults).toList();
+        } else if (firstResult == 0) {
+            invitations = tenant.getInvitationsStreamAfter(searchQuery, null, maxResults).toList();
+        } else {
+            invitations = tenant.getInvitationsStream(searchQuery, firstResult, maxResults).toList();
+        }
+
+        if (Cursors.isFullPage(invitations, maxResults)) {
+            Cursors.addNextLink(session, Cursors.encode(invitations.get(invitations.size() - 1).getId()));
+        }
+
+        return invitations.stream().map(ModelMapper::toRepresentation);
     }
 
     @DELETE
@@ -138,7 +227,7 @@ public class TenantInvitationsResource extends AbstractAdminResource<TenantAdmin
         }
     }
 
-    private static boolean isValidEmail(String email) {
+    static boolean isValidEmail(String email) {
         if (email != null) {
             try {
                 if (email.startsWith("mailto:")) {
@@ -1,5 +1,6 @@
 package dev.sultanov.keycloak.multitenancy.resource;
 
+import dev.sultanov.keycloak.multitenancy.model.TenantMembershipModel;
 import dev.sultanov.keycloak.multitenancy.model.TenantModel;
 import dev.sultanov.keycloak.multitenancy.resource.representation.TenantMembershipRepresentation;
 import jakarta.ws.rs.Consumes;
@@ -15,6 +16,7 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
+import java.util.List;
 import java.util.stream.Stream;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
@@ -48,19 +50,32 @@ public class TenantMembershipsResource extends AbstractAdminResource<TenantAdmin
     public Stream<TenantMembershipRepresentation> listMemberships(
             @Parameter(description = "Member email") @QueryParam("search") String search,
             @Parameter(description = "Pagination offset") @QueryParam("first") Integer firstResult,
-            @Parameter(description = "Maximum results size (defaults to 100)") @QueryParam("max") Integer maxResults) {
+            @Parameter(description = "Maximum results size (defaults to 100)") @QueryParam("max") Integer maxResults,
+            @Parameter(description = "Pagination cursor from the next link of the previous page, takes precedence over the offset")
+            @QueryParam(Cursors.AFTER_PARAM) String after) {
 
         firstResult = firstResult != null ? firstResult : 0;
         maxResults = maxResults != null ? maxResults : Constants.DEFAULT_MAX_RESULTS;
 
+        String email = null;
         if (StringUtil.isNotBlank(search)) {
-            search = URLDecoder.decode(search, Charset.defaultCharset()).trim().toLowerCase();
-            return tenant.getMembershipsStream(search, firstResult, maxResults)
-                    .map(ModelMapper::toRepresentation);
+            email = URLDecoder.decode(search, Charset.defaultCharset()).trim().toLowerCase();
+        }
+
+        List<TenantMembershipModel> memberships;
+        if (after != null) {
+            memberships = tenant.getMembershipsStreamAfter(email, Cursors.decode(after, 1).get(0), maxResults).toList();
+        } else if (email != null) {
+            memberships = tenant.getMembershipsStream(email, firstResult, maxResults).toList();
         } else {
-            return tenant.getMembershipsStream(firstResult, maxResults)
-                    .map(ModelMapper::toRepresentation);
+            memberships = tenant.getMembershipsStream(firstResult, maxResults).toList();
         }
+
+        if (Cursors.isFullPage(memberships, maxResults)) {
+            Cursors.addNextLink(session, Cursors.encode(memberships.get(memberships.size() - 1).getId()));
+        }
+
+        return memberships.stream().map(ModelMapper::toRepresentation);
     }
 
     @PATCH
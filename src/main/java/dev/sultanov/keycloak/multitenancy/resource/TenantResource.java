@@ -11,11 +11,6 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -62,15 +57,7 @@ public class TenantResource extends AbstractAdminResource<TenantAdminAuth> {
         }
 
         if (request.getAttributes() != null) {
-            Set<String> attrsToRemove = new HashSet<>(tenant.getAttributes().keySet());
-            attrsToRemove.removeAll(request.getAttributes().keySet());
-            for (Map.Entry<String, List<String>> attr : request.getAttributes().entrySet()) {
-                tenant.setAttribute(attr.getKey(), attr.getValue());
-            }
-
-            for (String attr : attrsToRemove) {
-                tenant.removeAttribute(attr);
-            }
+            tenant.setAttributes(request.getAttributes());
         }
 
         adminEvent.operation(OperationType.UPDATE)
@@ -1,6 +1,9 @@
 package dev.sultanov.keycloak.multitenancy.resource;
 
 import dev.sultanov.keycloak.multitenancy.model.TenantModel;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantExportRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantImportResultRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantMembershipCheckRepresentation;
 import dev.sultanov.keycloak.multitenancy.resource.representation.TenantRepresentation;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.Consumes;
@@ -15,9 +18,15 @@ import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
@@ -30,13 +39,24 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.keycloak.events.admin.OperationType;
 import org.keycloak.models.Constants;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.ModelDuplicateException;
 import org.keycloak.services.ErrorResponse;
+import org.keycloak.services.ErrorResponseException;
 import org.keycloak.utils.SearchQueryUtils;
 
 public class TenantsResource extends AbstractAdminResource<TenantAdminAuth> {
 
+    private static final int MAX_MEMBERSHIP_CHECKS = 100;
+
+    private final MembershipDecisionCache decisionCache;
+
     public TenantsResource(KeycloakSession session) {
-        super(session);
+        this(session, null, null);
+    }
+
+    TenantsResource(KeycloakSession session, MembershipDecisionCache decisionCache, BearerTokenCache tokenCache) {
+        super(session, tokenCache);
+        this.decisionCache = decisionCache;
     }
 
     @POST
@@ -58,19 +78,21 @@ public class TenantsResource extends AbstractAdminResource<TenantAdminAuth> {
 
         validateAttributes(request.getAttributes());
         
-        // Check if tenant with this name already exists
-        if (tenantProvider.getTenantByName(realm, request.getName()).isPresent()) {
-            throw ErrorResponse.exists(String.format("Tenant with name '%s' already exists in this realm", request.getName()));
+        if (tenantProvider.tenantNameExists(realm, request.getName())) {
+            throw tenantExists(request.getName());
         }
 
-        TenantModel model = tenantProvider.createTenant(realm, request.getName(), auth.getUser());
+        TenantModel model;
+        try {
+            model = tenantProvider.createTenant(realm, request.getName(), auth.getUser());
+        } catch (ModelDuplicateException e) {
+            // The same name was taken by a concurrent request after the check
+            session.getTransactionManager().setRollbackOnly();
+            throw tenantExists(request.getName());
+        }
 
         if (request.getAttributes() != null) {
-            request.getAttributes().forEach((key, values) -> {
-                if (values != null && !values.isEmpty()) {
-                    model.setAttribute(key, values);
-                }
-            });
+            model.setAttributes(request.getAttributes());
         }
 
         TenantRepresentation representation = ModelMapper.toRepresentation(model);
@@ -94,7 +116,9 @@ public class TenantsResource extends AbstractAdminResource<TenantAdminAuth> {
             @Parameter(description = "Tenant name") @QueryParam("search") String searchQuery,
             @Parameter(description = "Tenant attribute query") @QueryParam("q") String attributeQuery,
             @Parameter(description = "Pagination offset") @QueryParam("first") Integer firstResult,
-            @Parameter(description = "Maximum results size (defaults to 100)") @QueryParam("max") Integer maxResults) {
+            @Parameter(description = "Maximum results size (defaults to 100)") @QueryParam("max") Integer maxResults,
+            @Parameter(description = "Pagination cursor from the next link of the previous page, takes precedence over the offset")
+            @QueryParam(Cursors.AFTER_PARAM) String after) {
         firstResult = firstResult != null ? firstResult : 0;
         maxResults = maxResults != null ? maxResults : Constants.DEFAULT_MAX_RESULTS;
 
@@ -102,12 +126,142 @@ public class TenantsResource extends AbstractAdminResource<TenantAdminAuth> {
                 ? Collections.emptyMap()
                 : SearchQueryUtils.getFields(attributeQuery);
 
-        Stream<TenantModel> tenantStream = tenantProvider.getTenantsStream(realm, searchQuery, searchAttributes,
-                firstResult, maxResults);
+        // Other users than tenants managers only see the tenants they are members of
+        var member = auth.isTenantsManager() ? null : auth.getUser();
 
-        return tenantStream
-                .filter(tenant -> auth.isTenantsManager() || auth.isTenantMember(tenant))
-                .map(ModelMapper::toRepresentation);
+        List<TenantModel> tenants;
+        if (after != null) {
+            var cursor = Cursors.decode(after, 2);
+            tenants = tenantProvider.getTenantsStreamAfter(realm, searchQuery, searchAttributes, member, cursor.get(0), cursor.get(1), maxResults)
+                    .toList();
+        } else {
+            tenants = tenantProvider.getTenantsStream(realm, searchQuery, searchAttributes, member, firstResult, maxResults).toList();
+        }
+
+        if (Cursors.isFullPage(tenants, maxResults)) {
+            var last = tenants.get(tenants.size() - 1);
+            Cursors.addNextLink(session, Cursors.encode(last.getName(), last.getId()));
+        }
+
+        return tenants.stream().map(ModelMapper::toRepresentation);
+    }
+
+    @GET
+    @Path("export")
+    @Produces(TenantExport.MEDIA_TYPE)
+    @Operation(operationId = "exportTenants", summary = "Export all tenants of the realm as newline-delimited JSON")
+    @APIResponses({
+            @APIResponse(responseCode = "200", description = "OK", content = @Content(mediaType = TenantExport.MEDIA_TYPE,
+                    schema = @Schema(implementation = TenantExportRepresentation.class))),
+            @APIResponse(responseCode = "400", description = "Bad Request - Unknown include"),
+            @APIResponse(responseCode = "401", description = "Unauthorized"),
+            @APIResponse(responseCode = "403", description = "Forbidden")
+    })
+    public Response exportTenants(
+            @Parameter(description = "Related data to include: attributes, memberships, invitations") @QueryParam("include") List<String> include) {
+        if (!auth.isTenantsManager()) {
+            throw new ForbiddenException("Insufficient permission to export tenants");
+        }
+        var includes = TenantExport.Include.parse(include);
+        var export = new TenantExport(session.getKeycloakSessionFactory(), realm.getId(), realm.getName(), includes);
+        return Response.ok(export, TenantExport.MEDIA_TYPE).build();
+    }
+
+    @POST
+    @Path("import")
+    @Consumes(TenantExport.MEDIA_TYPE)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "importTenants", summary = "Import tenants from newline-delimited JSON in the format of the export")
+    @APIResponses({
+            @APIResponse(responseCode = "200", description = "OK - Result for each tenant of the request",
+                    content = @Content(schema = @Schema(type = SchemaType.ARRAY, implementation = TenantImportResultRepresentation.class))),
+            @APIResponse(responseCode = "401", description = "Unauthorized"),
+            @APIResponse(responseCode = "403", description = "Forbidden")
+    })
+    public List<TenantImportResultRepresentation> importTenants(@RequestBody(required = true) InputStream input) throws IOException {
+        if (!auth.isTenantsManager()) {
+            throw new ForbiddenException("Insufficient permission to import tenants");
+        }
+
+        var results = new TenantImporter(session, realm, auth.getUser()).importTenants(input);
+
+        adminEvent.operation(OperationType.CREATE)
+                .resourcePath(session.getContext().getUri())
+                .success();
+
+        return results;
+    }
+
+    @GET
+    @Path("membership-check")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "checkMembership", summary = "Check whether a user is a member of a tenant and return their roles",
+            description = "Results are cached on each node for a few seconds, so changes of memberships may not be reflected immediately.")
+    @APIResponses({
+            @APIResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = TenantMembershipCheckRepresentation.class))),
+            @APIResponse(responseCode = "400", description = "Bad Request - Missing tenant or user ID"),
+            @APIResponse(responseCode = "401", description = "Unauthorized"),
+            @APIResponse(responseCode = "403", description = "Forbidden")
+    })
+    public TenantMembershipCheckRepresentation checkMembership(
+            @Parameter(description = "Tenant ID", required = true) @QueryParam("tenantId") String tenantId,
+            @Parameter(description = "User ID", required = true) @QueryParam("userId") String userId) {
+        var check = new TenantMembershipCheckRepresentation();
+        check.setTenantId(tenantId);
+        check.setUserId(userId);
+        return checkMemberships(List.of(check)).get(0);
+    }
+
+    @POST
+    @Path("membership-check")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "checkMemberships", summary = "Check the memberships of multiple users and tenants",
+            description = "Results are cached on each node for a few seconds, so changes of memberships may not be reflected immediately.")
+    @APIResponses({
+            @APIResponse(responseCode = "200", description = "OK - Result for each check of the request",
+                    content = @Content(schema = @Schema(type = SchemaType.ARRAY, implementation = TenantMembershipCheckRepresentation.class))),
+            @APIResponse(responseCode = "400", description = "Bad Request - Too many checks or missing tenant or user ID"),
+            @APIResponse(responseCode = "401", description = "Unauthorized"),
+            @APIResponse(responseCode = "403", description = "Forbidden")
+    })
+    public List<TenantMembershipCheckRepresentation> checkMemberships(@RequestBody(required = true) List<TenantMembershipCheckRepresentation> request) {
+        if (!auth.isTenantsManager()) {
+            throw new ForbiddenException("Insufficient permission to check memberships");
+        }
+        List<TenantMembershipCheckRepresentation> checks = Optional.ofNullable(request).orElse(List.of());
+        if (checks.size() > MAX_MEMBERSHIP_CHECKS) {
+            throw new BadRequestException(String.format("At most %d memberships can be checked at once", MAX_MEMBERSHIP_CHECKS));
+        }
+
+        List<TenantMembershipCheckRepresentation> uncached = new ArrayList<>();
+        for (TenantMembershipCheckRepresentation check : checks) {
+            if (check == null || check.getTenantId() == null || check.getUserId() == null) {
+                throw new BadRequestException("Tenant ID and user ID are required");
+            }
+            if (decisionCache == null || !decisionCache.complete(realm.getId(), check)) {
+                uncached.add(check);
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            Set<String> tenantIds = new LinkedHashSet<>();
+            Set<String> userIds = new LinkedHashSet<>();
+            uncached.forEach(check -> {
+                tenantIds.add(check.getTenantId());
+                userIds.add(check.getUserId());
+            });
+            var memberRoles = tenantProvider.getMemberRoles(realm, tenantIds, userIds);
+            for (TenantMembershipCheckRepresentation check : uncached) {
+                var roles = memberRoles.getOrDefault(check.getTenantId(), Map.of()).get(check.getUserId());
+                check.setMember(roles != null);
+                check.setRoles(roles != null ? roles : Set.of());
+                if (decisionCache != null) {
+                    decisionCache.put(realm.getId(), check);
+                }
+            }
+        }
+        return checks;
     }
 
     @Path("{tenantId}")
@@ -121,7 +275,11 @@ public class TenantsResource extends AbstractAdminResource<TenantAdminAuth> {
         }
     }
 
-    private void validateAttributes(Map<String, List<String>> attributes) {
+    private static ErrorResponseException tenantExists(String name) {
+        return ErrorResponse.exists(String.format("Tenant with name '%s' already exists in this realm", name));
+    }
+
+    static void validateAttributes(Map<String, List<String>> attributes) {
         if (attributes != null) {
             attributes.forEach((key, values) -> {
                 if (key == null || key.trim().isEmpty()) {
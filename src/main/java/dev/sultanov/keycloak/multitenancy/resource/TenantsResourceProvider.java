@@ -7,9 +7,17 @@ import org.keycloak.services.resource.RealmResourceProvider;
 public class TenantsResourceProvider implements RealmResourceProvider {
 
     protected final KeycloakSession session;
+    private final MembershipDecisionCache decisionCache;
+    private final BearerTokenCache tokenCache;
 
     public TenantsResourceProvider(KeycloakSession session) {
+        this(session, null, null);
+    }
+
+    TenantsResourceProvider(KeycloakSession session, MembershipDecisionCache decisionCache, BearerTokenCache tokenCache) {
         this.session = session;
+        this.decisionCache = decisionCache;
+        this.tokenCache = tokenCache;
     }
 
     @Override
@@ -18,7 +26,7 @@ public class TenantsResourceProvider implements RealmResourceProvider {
         if (request != null && "OPTIONS".equals(request.getHttpMethod())) {
             return new CorsResource();
         } else {
-            return new TenantsResource(session);
+            return new TenantsResource(session, decisionCache, tokenCache);
         }
     }
 
@@ -1,14 +1,41 @@
 package dev.sultanov.keycloak.multitenancy.resource;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.jbosslog.JBossLog;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
 import org.keycloak.Config;
+import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
 import org.keycloak.services.resource.RealmResourceProviderFactory;
 
+@JBossLog
 public class TenantsResourceProviderFactory implements RealmResourceProviderFactory {
 
     private static final String ID = "tenants";
 
+    public static final String DECISION_CACHE_NAME = "tenant-membership-decisions";
+    public static final String TOKEN_CACHE_NAME = "tenant-api-tokens";
+
+    private static final long DEFAULT_DECISION_CACHE_MAX_COUNT = 10000;
+    private static final long DEFAULT_DECISION_CACHE_LIFESPAN = 10;
+    private static final long DEFAULT_TOKEN_CACHE_MAX_COUNT = 10000;
+    private static final long DEFAULT_TOKEN_CACHE_LIFESPAN = 10;
+
+    private volatile boolean cachesInitialized;
+    private MembershipDecisionCache decisionCache;
+    private BearerTokenCache tokenCache;
+    private long decisionCacheMaxCount;
+    private long decisionCacheLifespan;
+    private long tokenCacheMaxCount;
+    private long tokenCacheLifespan;
+
     @Override
     public String getId() {
         return ID;
@@ -20,11 +47,49 @@ public class TenantsResourceProviderFactory implements RealmResourceProviderFact
 
     @Override
     public TenantsResourceProvider create(KeycloakSession session) {
-        return new TenantsResourceProvider(session);
+        lazyInit(session);
+        return new TenantsResourceProvider(session, decisionCache, tokenCache);
+    }
+
+    private void lazyInit(KeycloakSession session) {
+        if (!cachesInitialized) {
+            synchronized (this) {
+                if (!cachesInitialized) {
+                    EmbeddedCacheManager embeddedCacheManager = session.getProvider(InfinispanConnectionProvider.class)
+                            .getCache(InfinispanConnectionProvider.REALM_CACHE_NAME)
+                            .getCacheManager();
+                    if (decisionCacheLifespan > 0) {
+                        decisionCache = new MembershipDecisionCache(getLocalCache(embeddedCacheManager, DECISION_CACHE_NAME, decisionCacheMaxCount,
+                                decisionCacheLifespan));
+                    }
+                    if (tokenCacheLifespan > 0) {
+                        tokenCache = new BearerTokenCache(getLocalCache(embeddedCacheManager, TOKEN_CACHE_NAME, tokenCacheMaxCount, tokenCacheLifespan),
+                                tokenCacheLifespan);
+                    }
+                    cachesInitialized = true;
+                }
+            }
+        }
+    }
+
+    private static <V> Cache<String, V> getLocalCache(EmbeddedCacheManager embeddedCacheManager, String name, long maxCount, long lifespan) {
+        if (embeddedCacheManager.getCacheConfiguration(name) == null) {
+            embeddedCacheManager.defineConfiguration(name, new ConfigurationBuilder()
+                    .clustering().cacheMode(CacheMode.LOCAL)
+                    .memory().maxCount(maxCount)
+                    .expiration().lifespan(lifespan, TimeUnit.SECONDS)
+                    .build());
+        }
+        log.debugf("Cache %s initialized with max count %d and lifespan %d seconds", name, maxCount, lifespan);
+        return embeddedCacheManager.getCache(name);
     }
 
     @Override
     public void init(Config.Scope config) {
+        decisionCacheMaxCount = config.getLong("decisionCacheMaxCount", DEFAULT_DECISION_CACHE_MAX_COUNT);
+        decisionCacheLifespan = config.getLong("decisionCacheLifespan", DEFAULT_DECISION_CACHE_LIFESPAN);
+        tokenCacheMaxCount = config.getLong("tokenCacheMaxCount", DEFAULT_TOKEN_CACHE_MAX_COUNT);
+        tokenCacheLifespan = config.getLong("tokenCacheLifespan", DEFAULT_TOKEN_CACHE_LIFESPAN);
     }
 
     @Override
@@ -32,4 +97,34 @@ public class TenantsResourceProviderFactory implements RealmResourceProviderFact
         // TODO: Any event to handle?
         // factory.register((ProviderEvent event) -> {});
     }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name("decisionCacheMaxCount")
+                .type("long")
+                .helpText("Maximum number of entries in the local cache of membership checks")
+                .defaultValue(DEFAULT_DECISION_CACHE_MAX_COUNT)
+                .add()
+                .property()
+                .name("decisionCacheLifespan")
+                .type("long")
+                .helpText("Lifespan of the cached membership checks in seconds, 0 to disable the cache")
+                .defaultValue(DEFAULT_DECISION_CACHE_LIFESPAN)
+                .add()
+                .property()
+                .name("tokenCacheMaxCount")
+                .type("long")
+                .helpText("Maximum number of entries in the local cache of verified bearer tokens")
+                .defaultValue(DEFAULT_TOKEN_CACHE_MAX_COUNT)
+                .add()
+                .property()
+                .name("tokenCacheLifespan")
+                .type("long")
+                .helpText("Lifespan of the cached bearer tokens in seconds, 0 to verify the token of every request")
+                .defaultValue(DEFAULT_TOKEN_CACHE_LIFESPAN)
+                .add()
+                .build();
+    }
 }
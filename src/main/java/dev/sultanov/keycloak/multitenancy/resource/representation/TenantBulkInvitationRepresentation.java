@@ -0,0 +1,22 @@
+package dev.sultanov.keycloak.multitenancy.resource.representation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.Data;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema
+@Data
+public class TenantBulkInvitationRepresentation {
+
+    @Schema(required = true, description = "Emails to invite, all with the same roles")
+    private List<String> emails = new ArrayList<>();
+
+    @Schema(description = "Locale of the invitation emails")
+    private String locale;
+
+    @Schema(required = true)
+    private Set<String> roles = new HashSet<>();
+}
@@ -0,0 +1,24 @@
+package dev.sultanov.keycloak.multitenancy.resource.representation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TenantBulkInvitationResultRepresentation {
+
+    public enum Status {
+        CREATED, ALREADY_INVITED, ALREADY_MEMBER, INVALID
+    }
+
+    @Schema(readOnly = true)
+    private String email;
+
+    @Schema(readOnly = true, description = "ID of the created invitation")
+    private String id;
+
+    @Schema(readOnly = true)
+    private Status status;
+}
@@ -0,0 +1,31 @@
+package dev.sultanov.keycloak.multitenancy.resource.representation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TenantExportRepresentation {
+
+    @Schema(readOnly = true)
+    private String id;
+
+    @Schema(readOnly = true)
+    private String name;
+
+    @Schema(readOnly = true)
+    private String realm;
+
+    @Schema(readOnly = true, description = "Attributes of the tenant, only present if requested")
+    private Map<String, List<String>> attributes;
+
+    @Schema(readOnly = true, description = "Memberships of the tenant, only present if requested")
+    private List<TenantMembershipRepresentation> memberships;
+
+    @Schema(readOnly = true, description = "Invitations of the tenant, only present if requested")
+    private List<TenantInvitationRepresentation> invitations;
+}
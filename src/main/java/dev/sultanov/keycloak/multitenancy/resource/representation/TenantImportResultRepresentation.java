@@ -0,0 +1,30 @@
+package dev.sultanov.keycloak.multitenancy.resource.representation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TenantImportResultRepresentation {
+
+    public enum Status {
+        CREATED, CONFLICT, INVALID, FAILED
+    }
+
+    @Schema(readOnly = true, description = "Line of the tenant in the request body, starting from 1")
+    private int line;
+
+    @Schema(readOnly = true)
+    private String name;
+
+    @Schema(readOnly = true, description = "ID of the created tenant")
+    private String id;
+
+    @Schema(readOnly = true)
+    private Status status;
+
+    @Schema(readOnly = true, description = "Reason why the tenant was not created")
+    private String error;
+}
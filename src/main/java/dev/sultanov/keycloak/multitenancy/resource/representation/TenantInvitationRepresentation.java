@@ -26,4 +26,10 @@ public class TenantInvitationRepresentation {
 
     @Schema(readOnly = true)
     private String invitedBy;
+
+    @Schema(readOnly = true)
+    private Long createdTimestamp;
+
+    @Schema(readOnly = true)
+    private Long expirationTimestamp;
 }
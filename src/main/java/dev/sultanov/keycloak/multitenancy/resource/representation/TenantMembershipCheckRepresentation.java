@@ -0,0 +1,22 @@
+package dev.sultanov.keycloak.multitenancy.resource.representation;
+
+import java.util.Set;
+import lombok.Data;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema
+@Data
+public class TenantMembershipCheckRepresentation {
+
+    @Schema(required = true)
+    private String tenantId;
+
+    @Schema(required = true)
+    private String userId;
+
+    @Schema(readOnly = true, description = "Whether the user is a member of the tenant")
+    private Boolean member;
+
+    @Schema(readOnly = true, description = "Roles of the user in the tenant, empty if the user is not a member")
+    private Set<String> roles;
+}
@@ -0,0 +1,306 @@
+package dev.sultanov.keycloak.multitenancy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.InstanceOfAssertFactories.LIST;
+
+import com.microsoft.playwright.Page;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantInvitationRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantMembershipRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantRepresentation;
+import dev.sultanov.keycloak.multitenancy.support.BaseIntegrationTest;
+import dev.sultanov.keycloak.multitenancy.support.IntegrationTestContextHolder;
+import dev.sultanov.keycloak.multitenancy.support.actor.KeycloakAdminCli;
+import dev.sultanov.keycloak.multitenancy.support.actor.KeycloakUser;
+import dev.sultanov.keycloak.multitenancy.support.api.TenantResource;
+import dev.sultanov.keycloak.multitenancy.support.api.TenantsResource;
+import dev.sultanov.keycloak.multitenancy.support.browser.AccountPage;
+import dev.sultanov.keycloak.multitenancy.support.browser.ReviewInvitationsPage;
+import dev.sultanov.keycloak.multitenancy.support.browser.SelectTenantPage;
+import dev.sultanov.keycloak.multitenancy.util.Constants;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.Form;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.keycloak.TokenVerifier;
+import org.keycloak.admin.client.CreatedResponseUtil;
+import org.keycloak.admin.client.resource.ClientResource;
+import org.keycloak.common.VerificationException;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.representations.idm.ClientScopeRepresentation;
+import org.keycloak.representations.idm.ProtocolMapperRepresentation;
+
+/**
+ * Issues one token for a user with four tenants through the browser flow, as users with several tenants have to select the active tenant, and checks the
+ * claims of all tenants mappers configured on the client with different formats and filters.
+ */
+public class AllTenantsMapperIntegrationTest extends BaseIntegrationTest {
+
+    private static final String REALM_NAME = "multi-tenant";
+    private static final String CLIENT_ID = "multi-tenant";
+    private static final String TENANT_SCOPE = "tenant";
+    private static final String REGION_ATTRIBUTE = "region";
+
+    private static KeycloakAdminCli keycloakAdminClient;
+    private static ClientResource client;
+    private static String clientScopeId;
+    private static final List<String> mapperIds = new ArrayList<>();
+
+    private static TenantRepresentation adminTenant;
+    private static TenantRepresentation euTenant;
+    private static TenantRepresentation usTenant;
+    private static TenantRepresentation userTenant;
+    private static TenantResource userTenantResource;
+    private static KeycloakUser user;
+    private static AccessTokenResponse tokenResponse;
+    private static AccessToken token;
+
+    @BeforeAll
+    static void setUp() {
+        keycloakAdminClient = KeycloakAdminCli.forMainRealm();
+        var realm = keycloakAdminClient.getRealmResource();
+        client = realm.clients().get(realm.clients().findByClientId(CLIENT_ID).get(0).getId());
+        configureClient();
+
+        // The user is an admin of the tenants they created and a user of the tenant they were invited to
+        user = keycloakAdminClient.createVerifiedUser();
+        adminTenant = user.createTenant().toRepresentation();
+        // A single client, as its token is issued while the user has a single tenant and does not need to select one
+        var tenantsResource = user.tenantsResource();
+        euTenant = createTenant(tenantsResource, "eu");
+        usTenant = createTenant(tenantsResource, "us");
+
+        var inviter = keycloakAdminClient.createVerifiedUser();
+        userTenantResource = inviter.createTenant();
+        userTenant = userTenantResource.toRepresentation();
+        var invitation = new TenantInvitationRepresentation();
+        invitation.setEmail(user.getUserData().getEmail());
+        invitation.setRoles(Set.of(Constants.TENANT_USER_ROLE));
+        try (var response = userTenantResource.invitations().createInvitation(invitation)) {
+            assertThat(CreatedResponseUtil.getCreatedId(response)).isNotNull();
+        }
+
+        tokenResponse = signIn(adminTenant.getName(), "openid " + TENANT_SCOPE + ":" + euTenant.getId());
+        token = decode(tokenResponse);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        mapperIds.forEach(client.getProtocolMappers()::delete);
+        client.removeOptionalClientScope(clientScopeId);
+        keycloakAdminClient.getRealmResource().clientScopes().get(clientScopeId).remove();
+    }
+
+    @Test
+    void allTenantsMapper_shouldMapTenantIds_whenFormatIsIds() {
+        assertThat(token.getOtherClaims().get("tenant_ids"))
+                .asInstanceOf(LIST)
+                .containsExactlyInAnyOrder(adminTenant.getId(), euTenant.getId(), usTenant.getId(), userTenant.getId());
+        assertThat(token.getOtherClaims()).doesNotContainKey("tenant_ids_overflow");
+    }
+
+    @Test
+    void allTenantsMapper_shouldMapTenantIdsAndRoles_whenFormatIsCompact() {
+        assertThat(token.getOtherClaims().get("tenant_compact"))
+                .asInstanceOf(LIST)
+                .containsExactlyInAnyOrder(
+                        adminTenant.getId() + ":" + Constants.TENANT_ADMIN_ROLE,
+                        euTenant.getId() + ":" + Constants.TENANT_ADMIN_ROLE,
+                        usTenant.getId() + ":" + Constants.TENANT_ADMIN_ROLE,
+                        userTenant.getId() + ":" + Constants.TENANT_USER_ROLE
+                );
+    }
+
+    @Test
+    void allTenantsMapper_shouldMapRoleMasks_whenFormatIsBitmask() {
+        // The default role dictionary has the admin role as bit 0 and the user role as bit 1
+        assertThat(token.getOtherClaims().get("tenant_roles"))
+                .isEqualTo(Map.of(adminTenant.getId(), 1, euTenant.getId(), 1, usTenant.getId(), 1, userTenant.getId(), 2));
+    }
+
+    @Test
+    void allTenantsMapper_shouldMapActiveTenantAndFlagOverflow_whenUserHasMoreTenantsThanMaximum() {
+        assertThat(token.getOtherClaims().get("tenant_limited")).asInstanceOf(LIST).containsExactly(adminTenant.getId());
+        assertThat(token.getOtherClaims().get("tenant_limited_overflow")).isEqualTo(true);
+    }
+
+    @Test
+    void allTenantsMapper_shouldMapTenantsWithRole_whenRoleFilterIsSet() {
+        assertThat(token.getOtherClaims().get("tenant_user_of")).asInstanceOf(LIST).containsExactly(userTenant.getId());
+    }
+
+    @Test
+    void allTenantsMapper_shouldMapTenantsWithAttribute_whenAttributeFilterIsSet() {
+        assertThat(token.getOtherClaims().get("tenant_eu")).asInstanceOf(LIST).containsExactly(euTenant.getId());
+    }
+
+    @Test
+    void allTenantsMapper_shouldMapRequestedTenants_whenScopeFilterIsSet() {
+        assertThat(token.getOtherClaims().get("tenant_requested")).asInstanceOf(LIST).containsExactly(euTenant.getId());
+    }
+
+    @Test
+    void allTenantsMapper_shouldMapSameTenants_whenMembershipsAreLoadedFromDatabaseOrCache() {
+        // given
+        var membership = userTenantResource.memberships().listMemberships(user.getUserData().getEmail(), null, null).stream()
+                .filter(element -> element.getUser().getId().equals(user.getUserId()))
+                .findFirst()
+                .orElseThrow();
+        var unchanged = new TenantMembershipRepresentation();
+        unchanged.setRoles(membership.getRoles());
+        // Evicts the memberships of the user from the cache without changing them
+        try (var response = userTenantResource.memberships().update(membership.getId(), unchanged)) {
+            assertThat(response.getStatus()).isEqualTo(204);
+        }
+
+        // when
+        var loaded = refresh(tokenResponse);
+        var cached = refresh(loaded);
+
+        // then
+        for (var claim : List.of("all_tenants", "tenant_ids", "tenant_compact", "tenant_roles", "tenant_limited", "tenant_limited_overflow",
+                "tenant_user_of", "tenant_eu", "tenant_requested")) {
+            var expected = token.getOtherClaims().get(claim);
+            for (var refreshed : List.of(decode(loaded), decode(cached))) {
+                if (expected instanceof List<?> list) {
+                    assertThat(refreshed.getOtherClaims().get(claim)).as(claim).asInstanceOf(LIST).containsExactlyInAnyOrderElementsOf(list);
+                } else {
+                    assertThat(refreshed.getOtherClaims().get(claim)).as(claim).isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    private static void configureClient() {
+        var clientRepresentation = client.toRepresentation();
+        var redirectUri = IntegrationTestContextHolder.getContext().keycloakUrl() + "/realms/" + REALM_NAME + "/account/*";
+        if (!clientRepresentation.getRedirectUris().contains(redirectUri)) {
+            var redirectUris = new ArrayList<>(clientRepresentation.getRedirectUris());
+            redirectUris.add(redirectUri);
+            clientRepresentation.setRedirectUris(redirectUris);
+            client.update(clientRepresentation);
+        }
+
+        // Requests like 'tenant:<id>' are only accepted for a dynamic client scope
+        var clientScope = new ClientScopeRepresentation();
+        clientScope.setName(TENANT_SCOPE);
+        clientScope.setProtocol("openid-connect");
+        clientScope.setAttributes(Map.of("is.dynamic.scope", "true", "dynamic.scope.regexp", TENANT_SCOPE + ":*"));
+        try (var response = keycloakAdminClient.getRealmResource().clientScopes().create(clientScope)) {
+            clientScopeId = CreatedResponseUtil.getCreatedId(response);
+        }
+        client.addOptionalClientScope(clientScopeId);
+
+        addMapper("tenant_ids", Map.of("claim.format", "ids", "max.tenants", "10"));
+        addMapper("tenant_compact", Map.of("claim.format", "compact"));
+        addMapper("tenant_roles", Map.of("claim.format", "bitmask"));
+        addMapper("tenant_limited", Map.of("claim.format", "ids", "max.tenants", "1"));
+        addMapper("tenant_user_of", Map.of("claim.format", "ids", "filter.roles", Constants.TENANT_USER_ROLE));
+        addMapper("tenant_eu", Map.of("claim.format", "ids", "filter.attributes", REGION_ATTRIBUTE + "=eu"));
+        addMapper("tenant_requested", Map.of("claim.format", "ids", "filter.scope", TENANT_SCOPE));
+    }
+
+    private static void addMapper(String claimName, Map<String, String> config) {
+        var mapper = new ProtocolMapperRepresentation();
+        mapper.setName(claimName);
+        mapper.setProtocol("openid-connect");
+        mapper.setProtocolMapper("oidc-all-tenants-mapper");
+        var mapperConfig = new HashMap<>(config);
+        mapperConfig.put("claim.name", claimName);
+        mapperConfig.put("access.token.claim", "true");
+        mapper.setConfig(mapperConfig);
+        try (var response = client.getProtocolMappers().createMapper(mapper)) {
+            mapperIds.add(CreatedResponseUtil.getCreatedId(response));
+        }
+    }
+
+    private static TenantRepresentation createTenant(TenantsResource tenantsResource, String region) {
+        var tenant = new TenantRepresentation();
+        tenant.setName("Tenant-" + UUID.randomUUID());
+        tenant.setAttributes(Map.of(REGION_ATTRIBUTE, List.of(region)));
+        try (var response = tenantsResource.createTenant(tenant)) {
+            tenant.setId(CreatedResponseUtil.getCreatedId(response));
+        }
+        return tenant;
+    }
+
+    /**
+     * Signs in with the account console, accepting the invitation and selecting the active tenant, and then requests a token with the given scope
+     * within the same session.
+     */
+    private static AccessTokenResponse signIn(String activeTenantName, String scope) {
+        var page = AccountPage.open()
+                .signIn()
+                .fillCredentials(user.getUserData().getEmail(), user.getUserData().getPassword())
+                .signIn()
+                .as(ReviewInvitationsPage.class)
+                .accept()
+                .as(SelectTenantPage.class)
+                .select(activeTenantName)
+                .signIn()
+                .as(AccountPage.class)
+                .getPage();
+
+        var context = IntegrationTestContextHolder.getContext();
+        var redirectUri = context.keycloakUrl() + "/realms/" + REALM_NAME + "/account/";
+        page.navigate("%s/realms/%s/protocol/openid-connect/auth?client_id=%s&redirect_uri=%s&response_type=code&scope=%s".formatted(
+                context.keycloakUrl(), REALM_NAME, CLIENT_ID, URLEncoder.encode(redirectUri, StandardCharsets.UTF_8),
+                URLEncoder.encode(scope, StandardCharsets.UTF_8)));
+        page.waitForURL("**code=**", new Page.WaitForURLOptions().setTimeout(10000));
+
+        var form = new Form()
+                .param("grant_type", "authorization_code")
+                .param("code", getCode(page.url()))
+                .param("client_id", CLIENT_ID)
+                .param("redirect_uri", redirectUri);
+        return requestToken(form);
+    }
+
+    private static AccessTokenResponse refresh(AccessTokenResponse tokenResponse) {
+        var form = new Form()
+                .param("grant_type", "refresh_token")
+                .param("refresh_token", tokenResponse.getRefreshToken())
+                .param("client_id", CLIENT_ID);
+        return requestToken(form);
+    }
+
+    private static AccessTokenResponse requestToken(Form form) {
+        var context = IntegrationTestContextHolder.getContext();
+        try (var response = context.httpClient()
+                .target(context.keycloakUrl() + "/realms/" + REALM_NAME + "/protocol/openid-connect/token")
+                .request()
+                .post(Entity.form(form))) {
+            assertThat(response.getStatus()).isEqualTo(200);
+            return response.readEntity(AccessTokenResponse.class);
+        }
+    }
+
+    private static AccessToken decode(AccessTokenResponse tokenResponse) {
+        try {
+            return TokenVerifier.create(tokenResponse.getToken(), AccessToken.class).getToken();
+        } catch (VerificationException e) {
+            throw new IllegalStateException("Failed to decode token", e);
+        }
+    }
+
+    private static String getCode(String url) {
+        var query = URI.create(url).getRawQuery();
+        for (var parameter : (query != null ? query : "").split("&")) {
+            if (parameter.startsWith("code=")) {
+                return URLDecoder.decode(parameter.substring("code=".length()), StandardCharsets.UTF_8);
+            }
+        }
+        throw new IllegalArgumentException("No code found in URL: " + url);
+    }
+}
@@ -1,8 +1,15 @@
 package dev.sultanov.keycloak.multitenancy;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantBulkInvitationRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantBulkInvitationResultRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantExportRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantImportResultRepresentation;
 import dev.sultanov.keycloak.multitenancy.resource.representation.TenantInvitationRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantMembershipCheckRepresentation;
 import dev.sultanov.keycloak.multitenancy.resource.representation.TenantMembershipRepresentation;
 import dev.sultanov.keycloak.multitenancy.resource.representation.TenantRepresentation;
 import dev.sultanov.keycloak.multitenancy.support.BaseIntegrationTest;
@@ -12,6 +19,19 @@ import dev.sultanov.keycloak.multitenancy.support.api.TenantResource;
 import dev.sultanov.keycloak.multitenancy.support.browser.AccountPage;
 import dev.sultanov.keycloak.multitenancy.support.browser.ReviewInvitationsPage;
 import dev.sultanov.keycloak.multitenancy.util.Constants;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.core.GenericType;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.apache.http.HttpStatus;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -22,6 +42,7 @@ import org.keycloak.admin.client.CreatedResponseUtil;
 import org.keycloak.representations.idm.ErrorRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
+import org.keycloak.util.JsonSerialization;
 
 public class ApiIntegrationTest extends BaseIntegrationTest {
 
@@ -192,6 +213,49 @@ public class ApiIntegrationTest extends BaseIntegrationTest {
         );
     }
 
+    @Test
+    void tenantsManager_shouldListAllTenants_whenFollowingNextLinks() {
+        // given
+        List<String> tenantIds = new ArrayList<>();
+        String after = null;
+
+        // when
+        for (int page = 0; page < 10; page++) {
+            try (var response = tenantsManager.tenantsResource().listTenantsPage(1, after)) {
+                assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+                tenantIds.addAll(response.readEntity(new GenericType<List<TenantRepresentation>>() {}).stream().map(TenantRepresentation::getId).toList());
+                var next = response.getLink("next");
+                if (next == null) {
+                    break;
+                }
+                after = nextCursor(next.getUri().getRawQuery());
+            }
+        }
+
+        // then
+        assertThat(tenantIds).containsExactlyInAnyOrder(tenant.getId(), tenantsManagerTenant.getId());
+    }
+
+    @Test
+    void tenantsManager_shouldListNoTenants_whenMaxIsZero() {
+        // when
+        try (var response = tenantsManager.tenantsResource().listTenantsPage(0, null)) {
+
+            // then
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+            assertThat(response.readEntity(new GenericType<List<TenantRepresentation>>() {})).isEmpty();
+            assertThat(response.getLink("next")).isNull();
+        }
+    }
+
+    private static String nextCursor(String query) {
+        return Arrays.stream(query.split("&"))
+                .filter(parameter -> parameter.startsWith("after="))
+                .map(parameter -> URLDecoder.decode(parameter.substring("after=".length()), StandardCharsets.UTF_8))
+                .findFirst()
+                .orElseThrow();
+    }
+
     @Test
     void tenantsManager_shouldListMembers_whenTheyAreNotMemberOfTenant() {
         // when
@@ -249,6 +313,228 @@ public class ApiIntegrationTest extends BaseIntegrationTest {
         }
     }
 
+    @Test
+    void tenantsManager_shouldExportAllTenantsWithMemberships() throws IOException {
+        // when
+        try (var response = tenantsManager.tenantsResource().exportTenants("attributes,memberships")) {
+
+            // then
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_OK);
+            List<TenantExportRepresentation> tenants = new ArrayList<>();
+            for (String line : response.readEntity(String.class).split("\n")) {
+                tenants.add(JsonSerialization.readValue(line, TenantExportRepresentation.class));
+            }
+            assertThat(tenants).extracting(TenantExportRepresentation::getId).containsExactlyInAnyOrder(
+                    tenant.getId(),
+                    tenantsManagerTenant.getId()
+            );
+            assertThat(tenants).filteredOn(exported -> exported.getId().equals(tenant.getId()))
+                    .singleElement()
+                    .satisfies(exported -> {
+                        assertThat(exported.getAttributes()).isEmpty();
+                        assertThat(exported.getInvitations()).isNull();
+                        assertThat(exported.getMemberships()).extracting(TenantMembershipRepresentation::getUser)
+                                .extracting(UserRepresentation::getEmail)
+                                .containsExactly(tenantAdmin.getUserData().getEmail());
+                    });
+        }
+    }
+
+    @Test
+    void tenantsManager_shouldCheckMemberships() {
+        // when
+        var adminCheck = tenantsManager.tenantsResource().checkMembership(tenant.getId(), tenantAdmin.getUserId());
+        var checks = tenantsManager.tenantsResource().checkMemberships(List.of(
+                membershipCheck(tenant.getId(), tenantAdmin.getUserId()),
+                membershipCheck(tenant.getId(), tenantsManager.getUserId()),
+                membershipCheck(tenantsManagerTenant.getId(), tenantsManager.getUserId())));
+
+        // then
+        assertThat(adminCheck.getMember()).isTrue();
+        assertThat(adminCheck.getRoles()).contains(Constants.TENANT_ADMIN_ROLE);
+        assertThat(checks)
+                .extracting(TenantMembershipCheckRepresentation::getTenantId, TenantMembershipCheckRepresentation::getUserId,
+                        TenantMembershipCheckRepresentation::getMember)
+                .containsExactly(
+                        tuple(tenant.getId(), tenantAdmin.getUserId(), true),
+                        tuple(tenant.getId(), tenantsManager.getUserId(), false),
+                        tuple(tenantsManagerTenant.getId(), tenantsManager.getUserId(), true));
+    }
+
+    @Test
+    void tenantAdmin_shouldNotCheckMemberships() {
+        // when/then
+        assertThatThrownBy(() -> tenantAdmin.tenantsResource().checkMembership(tenant.getId(), tenantAdmin.getUserId()))
+                .isInstanceOf(ForbiddenException.class);
+    }
+
+    private static TenantMembershipCheckRepresentation membershipCheck(String tenantId, String userId) {
+        var check = new TenantMembershipCheckRepresentation();
+        check.setTenantId(tenantId);
+        check.setUserId(userId);
+        return check;
+    }
+
+    @Test
+    void tenantAdmin_shouldNotExportTenants() {
+        // when
+        try (var response = tenantAdmin.tenantsResource().exportTenants(null)) {
+
+            // then
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.SC_FORBIDDEN);
+        }
+    }
+
+    @Test
+    void tenantsManager_shouldImportTenants_andReportConflicts() throws IOException {
+        // given
+        var member = new TenantMembershipRepresentation();
+        member.setUser(new UserRepresentation());
+        member.getUser().setEmail(tenantAdmin.getUserData().getEmail());
+        member.setRoles(Set.of(Constants.TENANT_ADMIN_ROLE));
+
+        var newTenant = new TenantExportRepresentation();
+        newTenant.setName("imported-" + UUID.randomUUID());
+        newTenant.setAttributes(Map.of("department", List.of("IT")));
+        newTenant.setMemberships(List.of(member));
+
+        var existingTenant = new TenantExportRepresentation();
+        existingTenant.setName(tenant.getName());
+
+        var body = JsonSerialization.writeValueAsString(newTenant) + "\n" + JsonSerialization.writeValueAsString(existingTenant) + "\nnot json\n";
+
+        // when
+        var results = tenantsManager.tenantsResource().importTenants(body);
+
+        // then
+        assertThat(results).extracting(TenantImportResultRepresentation::getLine, TenantImportResultRepresentation::getStatus).containsExactly(
+                tuple(1, TenantImportResultRepresentation.Status.CREATED),
+                tuple(2, TenantImportResultRepresentation.Status.CONFLICT),
+                tuple(3, TenantImportResultRepresentation.Status.INVALID)
+        );
+
+        // and the tenant admin should be a member of the imported tenant
+        var imported = tenantAdmin.tenantsResource().getTenantResource(results.get(0).getId());
+        assertThat(imported.toRepresentation().getAttributes()).containsEntry("department", List.of("IT"));
+        imported.deleteTenant().close();
+    }
+
+    @Test
+    void adminCreatesInvitations_shouldSkipExistingInvitationsAndMembers() {
+        // given
+        var invitedEmail = UUID.randomUUID() + "@example.com";
+        var invitation = new TenantInvitationRepresentation();
+        invitation.setEmail(invitedEmail);
+        tenantResource.invitations().createInvitation(invitation).close();
+
+        var newEmail = UUID.randomUUID() + "@example.com";
+        var request = new TenantBulkInvitationRepresentation();
+        request.setEmails(List.of(newEmail.toUpperCase(), invitedEmail, tenantAdmin.getUserData().getEmail(), "not an email"));
+        request.setRoles(Set.of(Constants.TENANT_ADMIN_ROLE));
+
+        // when
+        var results = tenantResource.invitations().createInvitations(request);
+
+        // then
+        assertThat(results).extracting(TenantBulkInvitationResultRepresentation::getEmail, TenantBulkInvitationResultRepresentation::getStatus)
+                .containsExactly(
+                        tuple(newEmail, TenantBulkInvitationResultRepresentation.Status.CREATED),
+                        tuple(invitedEmail, TenantBulkInvitationResultRepresentation.Status.ALREADY_INVITED),
+                        tuple(tenantAdmin.getUserData().getEmail().toLowerCase(), TenantBulkInvitationResultRepresentation.Status.ALREADY_MEMBER),
+                        tuple("not an email", TenantBulkInvitationResultRepresentation.Status.INVALID)
+                );
+        assertThat(tenantResource.invitations().listInvitations(newEmail, null, null))
+                .extracting(TenantInvitationRepresentation::getId, TenantInvitationRepresentation::getRoles)
+                .containsExactly(tuple(results.get(0).getId(), Set.of(Constants.TENANT_ADMIN_ROLE)));
+    }
+
+    @Test
+    void adminListsInvitations_shouldFilterAndPageInTheDatabase() {
+        // given
+        var domain = UUID.randomUUID() + ".example.com";
+        var request = new TenantBulkInvitationRepresentation();
+        request.setEmails(List.of("a@" + domain, "b@" + domain, "c@" + domain, UUID.randomUUID() + "@example.com"));
+        tenantResource.invitations().createInvitations(request);
+
+        // when
+        var all = tenantResource.invitations().listInvitations(domain.toUpperCase(), null, null);
+        var secondPage = tenantResource.invitations().listInvitations(domain, 1, 1);
+
+        // then
+        assertThat(all).hasSize(3);
+        assertThat(secondPage).extracting(TenantInvitationRepresentation::getId).containsExactly(all.get(1).getId());
+    }
+
+    @Test
+    void adminCreatesInvitation_shouldExpireAfterDefaultLifespan() {
+        // given
+        var invitation = new TenantInvitationRepresentation();
+        invitation.setEmail(UUID.randomUUID() + "@example.com");
+        tenantResource.invitations().createInvitation(invitation).close();
+
+        // when
+        var invitations = tenantResource.invitations().listInvitations(invitation.getEmail(), null, null);
+
+        // then
+        assertThat(invitations).singleElement().satisfies(created ->
+                assertThat(created.getExpirationTimestamp() - created.getCreatedTimestamp()).isEqualTo(TimeUnit.DAYS.toMillis(30)));
+    }
+
+    @Test
+    void user_shouldBeUnauthorized_whenDisabledAfterTokenWasCached() {
+        // given
+        var user = keycloakAdminClient.createVerifiedUser();
+        var userTenant = user.createTenant().toRepresentation();
+        var tenantsResource = user.tenantsResource();
+        assertThat(tenantsResource.listTenants(null, null, null, null)).extracting(TenantRepresentation::getId).containsExactly(userTenant.getId());
+
+        var userResource = keycloakAdminClient.getRealmResource().users().get(user.getUserId());
+        var userRepresentation = userResource.toRepresentation();
+        userRepresentation.setEnabled(false);
+        userResource.update(userRepresentation);
+
+        // when/then
+        assertThatThrownBy(() -> tenantsResource.listTenants(null, null, null, null)).isInstanceOf(NotAuthorizedException.class);
+
+        deleteTenantAndUser(userTenant, user);
+    }
+
+    @Test
+    void user_shouldBeUnauthorized_whenLoggedOutAfterTokenWasCached() {
+        // given
+        var user = keycloakAdminClient.createVerifiedUser();
+        var userTenant = user.createTenant().toRepresentation();
+        var tenantsResource = user.tenantsResource();
+        assertThat(tenantsResource.listTenants(null, null, null, null)).extracting(TenantRepresentation::getId).containsExactly(userTenant.getId());
+
+        keycloakAdminClient.getRealmResource().users().get(user.getUserId()).logout();
+
+        // when/then
+        assertThatThrownBy(() -> tenantsResource.listTenants(null, null, null, null)).isInstanceOf(NotAuthorizedException.class);
+
+        deleteTenantAndUser(userTenant, user);
+    }
+
+    @Test
+    void user_shouldBeUnauthorized_whenDeletedAfterTokenWasCached() {
+        // given
+        var user = keycloakAdminClient.createVerifiedUser();
+        var userTenant = user.createTenant().toRepresentation();
+        var tenantsResource = user.tenantsResource();
+        assertThat(tenantsResource.listTenants(null, null, null, null)).extracting(TenantRepresentation::getId).containsExactly(userTenant.getId());
+
+        deleteTenantAndUser(userTenant, user);
+
+        // when/then
+        assertThatThrownBy(() -> tenantsResource.listTenants(null, null, null, null)).isInstanceOf(NotAuthorizedException.class);
+    }
+
+    @SuppressWarnings("resource")
+    private static void deleteTenantAndUser(TenantRepresentation tenant, KeycloakUser user) {
+        tenantsManager.tenantsResource().getTenantResource(tenant.getId()).deleteTenant();
+        keycloakAdminClient.getRealmResource().users().delete(user.getUserId());
+    }
+
     private static void assignTenantsManagementRole(KeycloakUser user) {
         keycloakAdminClient.assignClientRoleToUser(
                 org.keycloak.models.Constants.REALM_MANAGEMENT_CLIENT_ID,
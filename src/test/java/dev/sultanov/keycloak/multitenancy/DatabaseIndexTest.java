@@ -0,0 +1,134 @@
+package dev.sultanov.keycloak.multitenancy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@Testcontainers
+public class DatabaseIndexTest {
+
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17");
+
+    private static Connection connection;
+    // The in-memory database lives as long as this connection is open
+    private static Connection h2Connection;
+
+    @BeforeAll
+    static void beforeAll() throws Exception {
+        postgres.start();
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        h2Connection = DriverManager.getConnection("jdbc:h2:mem:" + DatabaseIndexTest.class.getSimpleName());
+
+        migrate(connection);
+        migrate(h2Connection);
+    }
+
+    @AfterAll
+    static void afterAll() throws SQLException {
+        h2Connection.close();
+        connection.close();
+        postgres.stop();
+    }
+
+    private static void migrate(Connection connection) throws Exception {
+        // The changelog references the user table of Keycloak
+        try (var statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE USER_ENTITY (ID VARCHAR(36) PRIMARY KEY)");
+        }
+
+        Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+        new Liquibase("META-INF/keycloak-multi-tenancy-changelog-master.xml", new ClassLoaderResourceAccessor(), database).update(new Contexts());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "TENANT_MEMBERSHIP      | IDX_TENANT_MEMBERSHIP_USER       | USER_ID",
+            "TENANT                 | IDX_TENANT_REALM_NAME            | REALM_ID,NAME,ID",
+            "TENANT_ATTRIBUTE       | IDX_TENANT_ATTR_TENANT_NAME      | TENANT_ID,NAME",
+            "TENANT_MEMBERSHIP_ROLE | IDX_TENANT_MEMB_ROLE_MEMB        | TENANT_MEMBERSHIP_ID",
+            "TENANT_INVITATION_ROLE | IDX_TENANT_INV_ROLE_INV          | TENANT_INVITATION_ID",
+            "TENANT_INVITATION      | IDX_TENANT_INVITATION_EMAIL      | EMAIL",
+            "TENANT_MEMBERSHIP      | IDX_TENANT_MEMBERSHIP_TENANT     | TENANT_ID,ID",
+            "TENANT_INVITATION      | IDX_TENANT_INVITATION_TENANT     | TENANT_ID,ID",
+            "TENANT_EMAIL_OUTBOX    | IDX_TENANT_EMAIL_OUTBOX_NEXT     | NEXT_ATTEMPT_TIMESTAMP",
+            "TENANT_INVITATION      | IDX_TENANT_INVITATION_EXPIRATION | EXPIRATION_TIMESTAMP"
+    })
+    void changelogShouldCreateIndex(String table, String index, String columns) throws SQLException {
+        // when
+        var postgresColumns = indexColumns(connection, table, index);
+        var h2Columns = indexColumns(h2Connection, table, index);
+
+        // then
+        assertThat(postgresColumns).as("PostgreSQL").containsExactly(columns.split(","));
+        assertThat(h2Columns).as("H2").containsExactly(columns.split(","));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "SELECT * FROM TENANT_MEMBERSHIP WHERE USER_ID = 'user'                          | IDX_TENANT_MEMBERSHIP_USER",
+            "SELECT * FROM TENANT WHERE REALM_ID = 'realm'                                   | IDX_TENANT_REALM_NAME",
+            "SELECT * FROM TENANT WHERE REALM_ID = 'realm' ORDER BY NAME, ID LIMIT 10        | IDX_TENANT_REALM_NAME",
+            "SELECT * FROM TENANT_ATTRIBUTE WHERE TENANT_ID = 'tenant' AND NAME = 'name'     | IDX_TENANT_ATTR_TENANT_NAME",
+            "SELECT * FROM TENANT_MEMBERSHIP_ROLE WHERE TENANT_MEMBERSHIP_ID = 'membership'  | IDX_TENANT_MEMB_ROLE_MEMB",
+            "SELECT * FROM TENANT_INVITATION_ROLE WHERE TENANT_INVITATION_ID = 'invitation'  | IDX_TENANT_INV_ROLE_INV",
+            "SELECT * FROM TENANT_INVITATION WHERE EMAIL = 'user@example.com'                | IDX_TENANT_INVITATION_EMAIL",
+            "SELECT * FROM TENANT_MEMBERSHIP WHERE TENANT_ID = 'tenant' AND ID > 'id' ORDER BY ID LIMIT 10 | IDX_TENANT_MEMBERSHIP_TENANT",
+            "SELECT * FROM TENANT_INVITATION WHERE TENANT_ID = 'tenant' AND ID > 'id' ORDER BY ID LIMIT 10 | IDX_TENANT_INVITATION_TENANT",
+            "SELECT * FROM TENANT_INVITATION WHERE TENANT_ID = 'tenant' AND EMAIL = 'user@example.com' | UQ_TENANT_INVITATION_TENANT_ID_EMAIL",
+            "SELECT * FROM TENANT_EMAIL_OUTBOX WHERE NEXT_ATTEMPT_TIMESTAMP <= 0 ORDER BY NEXT_ATTEMPT_TIMESTAMP LIMIT 10 | IDX_TENANT_EMAIL_OUTBOX_NEXT",
+            "SELECT * FROM TENANT_INVITATION WHERE EXPIRATION_TIMESTAMP <= 0 LIMIT 10 | IDX_TENANT_INVITATION_EXPIRATION"
+    })
+    void queryShouldUseIndex(String query, String index) throws SQLException {
+        // when
+        var plan = explain(query);
+
+        // then
+        assertThat(plan).containsIgnoringCase(index);
+    }
+
+    private static String explain(String query) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (var statement = connection.createStatement()) {
+            // Empty tables are cheaper to scan sequentially, so only check whether the planner is able to use an index
+            statement.execute("SET enable_seqscan = off");
+            try (var resultSet = statement.executeQuery("EXPLAIN " + query)) {
+                while (resultSet.next()) {
+                    plan.add(resultSet.getString(1));
+                }
+            }
+        }
+        return String.join("\n", plan);
+    }
+
+    private static List<String> indexColumns(Connection connection, String table, String index) throws SQLException {
+        var metaData = connection.getMetaData();
+        var tableName = metaData.storesLowerCaseIdentifiers() ? table.toLowerCase() : table;
+        SortedMap<Short, String> columns = new TreeMap<>();
+        try (var resultSet = metaData.getIndexInfo(null, null, tableName, false, false)) {
+            while (resultSet.next()) {
+                if (index.equalsIgnoreCase(resultSet.getString("INDEX_NAME"))) {
+                    columns.put(resultSet.getShort("ORDINAL_POSITION"), resultSet.getString("COLUMN_NAME").toUpperCase());
+                }
+            }
+        }
+        return List.copyOf(columns.values());
+    }
+}
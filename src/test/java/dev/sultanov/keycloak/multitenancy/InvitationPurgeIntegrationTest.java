@@ -0,0 +1,117 @@
+package dev.sultanov.keycloak.multitenancy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Playwright;
+import dasniko.testcontainers.keycloak.KeycloakContainer;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantInvitationRepresentation;
+import dev.sultanov.keycloak.multitenancy.support.IntegrationTestContext;
+import dev.sultanov.keycloak.multitenancy.support.IntegrationTestContextHolder;
+import dev.sultanov.keycloak.multitenancy.support.actor.KeycloakAdminCli;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs against its own Keycloak instance on PostgreSQL, with a lifespan of invitations of five seconds and a purge interval of one second, and checks the
+ * invitation tables directly, as expired invitations are no longer returned by the API even before they are purged. The instance is discarded
+ * afterwards, so the tests do not clean up.
+ */
+@Testcontainers
+public class InvitationPurgeIntegrationTest {
+
+    private static final Duration AWAIT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration AWAIT_INTERVAL = Duration.ofMillis(500);
+
+    private static final Network network = Network.newNetwork();
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17")
+            .withNetwork(network)
+            .withNetworkAliases("postgres");
+    private static final KeycloakContainer keycloak = new KeycloakContainer("quay.io/keycloak/keycloak:26.3.1")
+            .withRealmImportFiles("/realm-export.json")
+            .withProviderClassesFrom("target/classes")
+            .withNetwork(network)
+            .withEnv("KC_DB", "postgres")
+            .withEnv("KC_DB_URL", "jdbc:postgresql://postgres:5432/" + postgres.getDatabaseName())
+            .withEnv("KC_DB_USERNAME", postgres.getUsername())
+            .withEnv("KC_DB_PASSWORD", postgres.getPassword())
+            .withEnv("KC_SPI_TENANT_PROVIDER_SPI_JPA_TENANT_PROVIDER_INVITATION_LIFESPAN", "5")
+            .withEnv("KC_SPI_TENANT_PROVIDER_SPI_JPA_TENANT_PROVIDER_PURGE_INTERVAL", "1");
+
+    private static Client client;
+    private static Playwright playwright;
+    private static Connection connection;
+    private static KeycloakAdminCli keycloakAdminClient;
+
+    @BeforeAll
+    static void beforeAll() throws SQLException {
+        postgres.start();
+        keycloak.start();
+        client = ClientBuilder.newClient();
+        playwright = Playwright.create();
+        var browser = playwright.chromium().launch(new BrowserType.LaunchOptions().setHeadless(true));
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+
+        IntegrationTestContextHolder.setContext(new IntegrationTestContext(client, browser, keycloak.getAuthServerUrl(), null));
+        keycloakAdminClient = KeycloakAdminCli.forMainRealm();
+    }
+
+    @AfterAll
+    static void afterAll() throws SQLException {
+        connection.close();
+        client.close();
+        playwright.close();
+        IntegrationTestContextHolder.clearContext();
+        keycloak.stop();
+        postgres.stop();
+    }
+
+    @Test
+    void expiredInvitation_shouldBeDeletedWithItsRoles_whenPurgeTaskRuns() throws Exception {
+        // given
+        var tenantResource = keycloakAdminClient.createVerifiedUser().createTenant();
+        var invitation = new TenantInvitationRepresentation();
+        invitation.setEmail(UUID.randomUUID() + "@example.com");
+        invitation.setRoles(Set.of("tenant-admin"));
+        tenantResource.invitations().createInvitation(invitation).close();
+        var invitationId = findInvitationId(invitation.getEmail());
+        assertThat(invitationId).isNotNull();
+
+        // when
+        long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT.toMillis();
+        while (findInvitationId(invitation.getEmail()) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(AWAIT_INTERVAL.toMillis());
+        }
+
+        // then
+        assertThat(findInvitationId(invitation.getEmail())).isNull();
+        try (var statement = connection.prepareStatement("SELECT COUNT(*) FROM TENANT_INVITATION_ROLE WHERE TENANT_INVITATION_ID = ?")) {
+            statement.setString(1, invitationId);
+            try (var resultSet = statement.executeQuery()) {
+                resultSet.next();
+                assertThat(resultSet.getInt(1)).isZero();
+            }
+        }
+    }
+
+    private static String findInvitationId(String email) throws SQLException {
+        try (var statement = connection.prepareStatement("SELECT ID FROM TENANT_INVITATION WHERE EMAIL = ?")) {
+            statement.setString(1, email);
+            try (var resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+}
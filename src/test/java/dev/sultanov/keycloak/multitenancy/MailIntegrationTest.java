@@ -41,7 +41,7 @@ public class MailIntegrationTest extends BaseIntegrationTest {
         }
 
         // then
-        var emailsForRecipient = mailhogClient.findAllForRecipient(invitee.getEmail());
+        var emailsForRecipient = mailhogClient.awaitAllForRecipient(invitee.getEmail(), 1);
         assertThat(emailsForRecipient).hasSize(1);
         assertThat(emailsForRecipient.get(0).body()).contains("You have been invited to join");
     }
@@ -61,7 +61,7 @@ public class MailIntegrationTest extends BaseIntegrationTest {
         }
 
         // then
-        var emailsForRecipient = mailhogClient.findAllForRecipient(invitee.getUserData().getEmail());
+        var emailsForRecipient = mailhogClient.awaitAllForRecipient(invitee.getUserData().getEmail(), 1);
         assertThat(emailsForRecipient).hasSize(1);
         assertThat(emailsForRecipient.get(0).body()).contains("Du har blivit inbjuden att");
     }
@@ -81,7 +81,7 @@ public class MailIntegrationTest extends BaseIntegrationTest {
         }
 
         // then
-        var emailsForRecipient = mailhogClient.findAllForRecipient(invitee.getUserData().getEmail());
+        var emailsForRecipient = mailhogClient.awaitAllForRecipient(invitee.getUserData().getEmail(), 1);
         assertThat(emailsForRecipient).hasSize(1);
         assertThat(emailsForRecipient.get(0).body()).contains("You have been invited to join");
     }
@@ -109,7 +109,7 @@ public class MailIntegrationTest extends BaseIntegrationTest {
         assertThat(nextPage).isInstanceOf(CreateTenantPage.class);
 
         // then
-        var emailsForRecipient = mailhogClient.findAllForRecipient(inviter.getUserData().getEmail());
+        var emailsForRecipient = mailhogClient.awaitAllForRecipient(inviter.getUserData().getEmail(), 1);
         assertThat(emailsForRecipient).hasSize(1);
         assertThat(emailsForRecipient.get(0).body()).contains("has been declined");
     }
@@ -142,7 +142,7 @@ public class MailIntegrationTest extends BaseIntegrationTest {
         assertThat(nextPage).isInstanceOf(AccountPage.class);
 
         // then
-        var emailsForRecipient = mailhogClient.findAllForRecipient(inviter.getUserData().getEmail());
+        var emailsForRecipient = mailhogClient.awaitAllForRecipient(inviter.getUserData().getEmail(), 1);
         assertThat(emailsForRecipient).hasSize(1);
         assertThat(emailsForRecipient.get(0).body()).contains("har accepterats");
     }
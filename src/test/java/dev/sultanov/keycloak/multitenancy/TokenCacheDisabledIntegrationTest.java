@@ -0,0 +1,68 @@
+package dev.sultanov.keycloak.multitenancy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Playwright;
+import dasniko.testcontainers.keycloak.KeycloakContainer;
+import dev.sultanov.keycloak.multitenancy.support.IntegrationTestContext;
+import dev.sultanov.keycloak.multitenancy.support.IntegrationTestContextHolder;
+import dev.sultanov.keycloak.multitenancy.support.actor.KeycloakAdminCli;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs against its own Keycloak instance, as the token cache of the tenants API is configured at startup. The instance is discarded afterwards, so the
+ * tests do not clean up.
+ */
+@Testcontainers
+public class TokenCacheDisabledIntegrationTest {
+
+    private static final KeycloakContainer keycloak = new KeycloakContainer("quay.io/keycloak/keycloak:26.3.1")
+            .withRealmImportFiles("/realm-export.json")
+            .withProviderClassesFrom("target/classes")
+            .withEnv("KC_SPI_REALM_RESTAPI_EXTENSION_TENANTS_TOKEN_CACHE_LIFESPAN", "0");
+
+    private static Client client;
+    private static Playwright playwright;
+    private static KeycloakAdminCli keycloakAdminClient;
+
+    @BeforeAll
+    static void beforeAll() {
+        keycloak.start();
+        client = ClientBuilder.newClient();
+        playwright = Playwright.create();
+        var browser = playwright.chromium().launch(new BrowserType.LaunchOptions().setHeadless(true));
+
+        IntegrationTestContextHolder.setContext(new IntegrationTestContext(client, browser, keycloak.getAuthServerUrl(), null));
+        keycloakAdminClient = KeycloakAdminCli.forMainRealm();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        client.close();
+        playwright.close();
+        IntegrationTestContextHolder.clearContext();
+        keycloak.stop();
+    }
+
+    @Test
+    void user_shouldBeUnauthorized_whenLoggedOutAfterFirstRequest() {
+        // given
+        var user = keycloakAdminClient.createVerifiedUser();
+        user.createTenant();
+        var tenantsResource = user.tenantsResource();
+        assertThat(tenantsResource.listTenants(null, null, null, null)).hasSize(1);
+
+        keycloakAdminClient.getRealmResource().users().get(user.getUserId()).logout();
+
+        // when/then
+        assertThatThrownBy(() -> tenantsResource.listTenants(null, null, null, null)).isInstanceOf(NotAuthorizedException.class);
+    }
+}
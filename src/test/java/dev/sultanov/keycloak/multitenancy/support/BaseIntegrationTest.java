@@ -24,6 +24,8 @@ public class BaseIntegrationTest {
             .withNetwork(network)
             .withNetworkAliases("keycloak")
             .withEnv("KC_LOGLEVEL", "DEBUG")
+            .withEnv("KC_SPI_EMAIL_SENDER_PROVIDER", "tenant-email-outbox")
+            .withFeaturesEnabled("dynamic-scopes")
             .withAccessToHost(true);
 
     private static final GenericContainer<?> mailhog = new GenericContainer<>("mailhog/mailhog")
@@ -1,5 +1,7 @@
 package dev.sultanov.keycloak.multitenancy.support.api;
 
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantBulkInvitationRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantBulkInvitationResultRepresentation;
 import dev.sultanov.keycloak.multitenancy.resource.representation.TenantInvitationRepresentation;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
@@ -20,6 +22,12 @@ public interface TenantInvitationsResource {
     @Produces(MediaType.APPLICATION_JSON)
     Response createInvitation(TenantInvitationRepresentation request);
 
+    @POST
+    @Path("bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    List<TenantBulkInvitationResultRepresentation> createInvitations(TenantBulkInvitationRepresentation request);
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     List<TenantInvitationRepresentation> listInvitations(
@@ -1,5 +1,7 @@
 package dev.sultanov.keycloak.multitenancy.support.api;
 
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantImportResultRepresentation;
+import dev.sultanov.keycloak.multitenancy.resource.representation.TenantMembershipCheckRepresentation;
 import dev.sultanov.keycloak.multitenancy.resource.representation.TenantRepresentation;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.GET;
@@ -28,6 +30,32 @@ public interface TenantsResource {
             @QueryParam("first") Integer firstResult,
             @QueryParam("max") Integer maxResults);
 
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    Response listTenantsPage(@QueryParam("max") Integer maxResults, @QueryParam("after") String after);
+
+    @GET
+    @Path("export")
+    @Produces("application/x-ndjson")
+    Response exportTenants(@QueryParam("include") String include);
+
+    @POST
+    @Path("import")
+    @Consumes("application/x-ndjson")
+    @Produces(MediaType.APPLICATION_JSON)
+    List<TenantImportResultRepresentation> importTenants(String tenants);
+
+    @GET
+    @Path("membership-check")
+    @Produces(MediaType.APPLICATION_JSON)
+    TenantMembershipCheckRepresentation checkMembership(@QueryParam("tenantId") String tenantId, @QueryParam("userId") String userId);
+
+    @POST
+    @Path("membership-check")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    List<TenantMembershipCheckRepresentation> checkMemberships(List<TenantMembershipCheckRepresentation> checks);
+
     @Path("{tenantId}")
     TenantResource getTenantResource(@PathParam("tenantId") String tenantId);
 }
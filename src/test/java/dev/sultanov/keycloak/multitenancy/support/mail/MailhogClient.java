@@ -6,6 +6,7 @@ import dev.sultanov.keycloak.multitenancy.support.IntegrationTestContextHolder;
 import jakarta.mail.internet.MimeUtility;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.core.MediaType;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.SneakyThrows;
@@ -13,6 +14,9 @@ import org.jboss.resteasy.client.jaxrs.ResteasyWebTarget;
 
 public class MailhogClient {
 
+    private static final Duration AWAIT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration AWAIT_INTERVAL = Duration.ofMillis(200);
+
     private final ResteasyWebTarget target;
 
     private MailhogClient(ResteasyWebTarget target) {
@@ -48,6 +52,20 @@ public class MailhogClient {
         return mails;
     }
 
+    /**
+     * Waits until the given number of emails has arrived for the recipient, as emails are delivered in the background.
+     */
+    @SneakyThrows
+    public List<EmailContent> awaitAllForRecipient(String recipient, int count) {
+        long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT.toMillis();
+        var mails = findAllForRecipient(recipient);
+        while (mails.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(AWAIT_INTERVAL.toMillis());
+            mails = findAllForRecipient(recipient);
+        }
+        return mails;
+    }
+
     public void deleteAll() {
         var response = target.path("/api/v1/messages").request().delete();
         response.close();